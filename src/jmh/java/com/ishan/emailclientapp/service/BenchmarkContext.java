@@ -0,0 +1,57 @@
+package com.ishan.emailclientapp.service;
+
+import com.ishan.emailclientapp.EmailClientAppApplication;
+import com.ishan.emailclientapp.model.EmailRequest;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Boots the application against two in-process servers for benchmarks
+ */
+final class BenchmarkContext {
+
+    static final String SERVER = "bench-a";
+
+    private BenchmarkContext() {
+    }
+
+    static ConfigurableApplicationContext start() {
+        String transport = InProcessTransport.class.getName();
+        // Command-line arguments, so they win over the servers in application.yml
+        return new SpringApplicationBuilder(EmailClientAppApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark",
+                        "--spring.mail.outbox.enabled=false",
+                        "--spring.mail.servers[0].name=" + SERVER,
+                        "--spring.mail.servers[0].host=localhost",
+                        "--spring.mail.servers[0].port=2525",
+                        "--spring.mail.servers[0].properties[mail.smtp.class]=" + transport,
+                        "--spring.mail.servers[1].name=bench-b",
+                        "--spring.mail.servers[1].host=localhost",
+                        "--spring.mail.servers[1].port=2526",
+                        "--spring.mail.servers[1].properties[mail.smtp.class]=" + transport,
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.ishan.emailclientapp=WARN");
+    }
+
+    static EmailRequest request(int index) {
+        EmailRequest request = new EmailRequest();
+        request.setFrom("Campaigns <news@example.com>");
+        request.setTo(List.of("user" + index + "@example.com"));
+        request.setSubject("Monthly newsletter");
+        request.setBody("Hello,\n\n" + "This month's highlights and product updates. ".repeat(40) + "\n\nRegards");
+        return request;
+    }
+
+    static List<EmailRequest> requests(int count) {
+        List<EmailRequest> requests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            requests.add(request(i));
+        }
+        return requests;
+    }
+}
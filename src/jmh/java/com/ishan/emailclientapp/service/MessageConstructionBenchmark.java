@@ -0,0 +1,60 @@
+package com.ishan.emailclientapp.service;
+
+import com.ishan.emailclientapp.model.EmailRequest;
+import jakarta.mail.internet.MimeMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-message work done before the DATA transfer: address parsing, MIME building and encoding
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageConstructionBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private EmailService emailService;
+    private EmailRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        emailService = context.getBean(EmailService.class);
+        request = BenchmarkContext.request(1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MimeMessage buildMessage() throws Exception {
+        return emailService.buildMessage(BenchmarkContext.SERVER, request).message();
+    }
+
+    @Benchmark
+    public MimeMessage buildAndEncodeMessage() throws Exception {
+        MimeMessage message = emailService.buildMessage(BenchmarkContext.SERVER, request).message();
+        message.writeTo(OutputStream.nullOutputStream());
+        return message;
+    }
+}
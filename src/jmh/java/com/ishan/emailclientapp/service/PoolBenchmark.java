@@ -0,0 +1,63 @@
+package com.ishan.emailclientapp.service;
+
+import jakarta.mail.Transport;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Borrow/return on the configured keyed pool, with more threads than connections per server
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PoolBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private GenericKeyedObjectPool<String, Transport> pool;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        context = BenchmarkContext.start();
+        pool = context.getBean("smtpConnectionPool", GenericKeyedObjectPool.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Transport borrowReturnContended() throws Exception {
+        Transport transport = pool.borrowObject(BenchmarkContext.SERVER);
+        pool.returnObject(BenchmarkContext.SERVER, transport);
+        return transport;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Transport borrowReturnUncontended() throws Exception {
+        Transport transport = pool.borrowObject(BenchmarkContext.SERVER);
+        pool.returnObject(BenchmarkContext.SERVER, transport);
+        return transport;
+    }
+}
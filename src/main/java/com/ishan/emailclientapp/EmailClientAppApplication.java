@@ -10,7 +10,16 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 @EnableConfigurationProperties
 public class EmailClientAppApplication {
 
+    private static final String VIRTUAL_THREAD_PARALLELISM = "jdk.virtualThreadScheduler.parallelism";
+
     public static void main(String[] args) {
+        // Angus SMTPTransport does its socket I/O inside synchronized methods, which pins a
+        // virtual thread to its carrier on JDK 21. Give the scheduler enough carriers that
+        // pinned sends don't cap dispatch concurrency at the core count.
+        if (System.getProperty(VIRTUAL_THREAD_PARALLELISM) == null) {
+            System.setProperty(VIRTUAL_THREAD_PARALLELISM,
+                    String.valueOf(Math.max(Runtime.getRuntime().availableProcessors(), 64)));
+        }
         SpringApplication.run(EmailClientAppApplication.class, args);
     }
 
@@ -0,0 +1,68 @@
+package com.ishan.emailclientapp.actuator;
+
+import com.ishan.emailclientapp.service.FlightRecordingService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.Map;
+
+/**
+ * Actuator endpoint (/actuator/flight-recording) to start, dump and stop the JDK Flight Recorder recording.
+ * GET reports its state, POST starts it, GET /dump downloads a .jfr file (open it in JDK Mission Control
+ * or with `jfr print`), and DELETE stops it.
+ */
+@Component
+@WebEndpoint(id = "flight-recording")
+public class FlightRecordingEndpoint {
+
+    private static final String DUMP = "dump";
+
+    @Autowired
+    private FlightRecordingService flightRecordingService;
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        return flightRecordingService.status();
+    }
+
+    @WriteOperation
+    public WebEndpointResponse<Map<String, Object>> start(@Nullable String settings, @Nullable Long maxAgeSeconds) {
+        try {
+            return new WebEndpointResponse<>(flightRecordingService.start(settings, maxAgeSeconds));
+        } catch (IOException | ParseException e) {
+            // Unknown settings name, or a configuration that does not parse
+            return new WebEndpointResponse<>(Map.of("error", String.valueOf(e.getMessage())),
+                    WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+    }
+
+    @ReadOperation(produces = "application/octet-stream")
+    public WebEndpointResponse<Resource> dump(@Selector String action) throws IOException {
+        if (!DUMP.equals(action) || !flightRecordingService.isRunning()) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        Path file = flightRecordingService.dump();
+        // The temporary file goes away once the response has been streamed
+        return new WebEndpointResponse<>(new InputStreamResource(Files.newInputStream(file, StandardOpenOption.DELETE_ON_CLOSE)));
+    }
+
+    @DeleteOperation
+    public Map<String, Object> stop() {
+        flightRecordingService.stop();
+        return flightRecordingService.status();
+    }
+}
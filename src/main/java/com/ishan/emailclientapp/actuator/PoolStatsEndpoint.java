@@ -0,0 +1,45 @@
+package com.ishan.emailclientapp.actuator;
+
+import com.ishan.emailclientapp.service.AdmissionService;
+import com.ishan.emailclientapp.service.ConnectionPoolHealthMonitor;
+import com.ishan.emailclientapp.service.DispatchEngine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint (/actuator/pool-stats) with the live connection pool, dispatch and intake state
+ */
+@Component
+@Endpoint(id = "pool-stats")
+public class PoolStatsEndpoint {
+
+    @Autowired
+    private ConnectionPoolHealthMonitor healthMonitor;
+
+    @Autowired
+    private DispatchEngine dispatchEngine;
+
+    @Autowired
+    private AdmissionService admissionService;
+
+    @ReadOperation
+    public Map<String, Object> poolStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("status", healthMonitor.getPoolHealthStatus());
+        stats.put("pool", healthMonitor.getPoolStatistics());
+
+        Map<String, Object> dispatch = new HashMap<>();
+        dispatch.put("active", dispatchEngine.getActiveCount());
+        dispatch.put("queued", dispatchEngine.getQueuedCount());
+        dispatch.put("concurrencyLimit", dispatchEngine.getConcurrencyLimit());
+        stats.put("dispatch", dispatch);
+
+        stats.put("intake", admissionService.getStatistics());
+        return stats;
+    }
+}
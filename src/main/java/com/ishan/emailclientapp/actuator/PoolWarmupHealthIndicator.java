@@ -0,0 +1,24 @@
+package com.ishan.emailclientapp.actuator;
+
+import com.ishan.emailclientapp.service.PoolWarmer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Health contributor "poolWarmup", part of the readiness group:
+ * OUT_OF_SERVICE until the startup warm-up has connected each server's minIdle transports
+ */
+@Component
+public class PoolWarmupHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private PoolWarmer poolWarmer;
+
+    @Override
+    public Health health() {
+        Health.Builder builder = poolWarmer.isWarm() ? Health.up() : Health.outOfService();
+        return builder.withDetail("idle", poolWarmer.getStatistics()).build();
+    }
+}
@@ -4,7 +4,9 @@ import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Component
 @Getter
@@ -25,6 +27,39 @@ public class MailProperties {
     // Default SMTP server (for backward compatibility)
     private SmtpServer defaultServer;
     
+    // Durable outbox for async and bulk sends
+    private Outbox outbox = new Outbox();
+    
+    // Backpressure on the async/bulk intake
+    private Admission admission = new Admission();
+    
+    // Content-addressed attachment storage
+    private Attachments attachments = new Attachments();
+    
+    // MIME building
+    private Mime mime = new Mime();
+    
+    // Latency-aware routing and outlier ejection
+    private Routing routing = new Routing();
+    
+    // TLS for pooled connections
+    private Tls tls = new Tls();
+    
+    // Retries of transient send failures
+    private Retry retry = new Retry();
+    
+    // Priority lanes (transactional/normal/bulk)
+    private Lanes lanes = new Lanes();
+    
+    // Bulk job progress tracking
+    private Jobs jobs = new Jobs();
+    
+    // Deduplication of retried send requests
+    private Idempotency idempotency = new Idempotency();
+    
+    // JDK Flight Recorder recording of the SMTP phases
+    private Recording recording = new Recording();
+    
     @Getter
     @Setter
     public static class Pool {
@@ -37,7 +72,136 @@ public class MailProperties {
         private boolean testOnBorrow = true;
         private boolean testOnReturn = false;
         private boolean testWhileIdle = true;
+        private long validationIdleMillis = 5000; // Connections idle longer than this get a NOOP when validated
         private int maxConnectionsPerServer = 5;
+        private int bulkBatchSize = 50; // Messages streamed over one borrowed connection in bulk sends
+        private Adaptive adaptive = new Adaptive();
+        private Warmup warmup = new Warmup();
+    }
+    
+    /**
+     * Connecting minIdle transports per server at startup and when a server recovers
+     */
+    @Getter
+    @Setter
+    public static class Warmup {
+        private boolean enabled = true;
+        private long timeoutMillis = 30000;     // Readiness stops waiting for warm-up after this
+    }
+    
+    /**
+     * AIMD control of each server's concurrency limit between minLimit and maxConnectionsPerServer
+     */
+    @Getter
+    @Setter
+    public static class Adaptive {
+        private boolean enabled = true;
+        private int minLimit = 1;
+        private long intervalMillis = 1000;     // Length of each observation window
+        private double backoffRatio = 0.7;      // Limit multiplier after throttle replies (421/4xx)
+        private double latencyTolerance = 2.0;  // Window latency over baseline * this counts as overload
+    }
+    
+    @Getter
+    @Setter
+    public static class Outbox {
+        private boolean enabled = true;
+        private int workers = 4;             // Dispatcher threads claiming rows
+        private int batchSize = 50;          // Rows claimed, sent and updated per round trip
+        private long pollIntervalMillis = 500;
+        private long leaseMillis = 120000;   // Claimed rows are reclaimable after this if the worker died
+        private long retryDelayMillis = 60000;
+        private int maxAttempts = 3;
+    }
+    
+    @Getter
+    @Setter
+    public static class Admission {
+        private long highWatermark = 10000;  // Queued emails at which intake starts rejecting
+        private long lowWatermark = 5000;    // Queued emails at which intake accepts again
+        private long maxRetryAfterSeconds = 300;
+    }
+    
+    @Getter
+    @Setter
+    public static class Attachments {
+        private String directory = System.getProperty("java.io.tmpdir") + "/smtp-pool-attachments";
+        private int spillThresholdBytes = 256 * 1024; // Inline content above this is moved to disk at intake
+        private long retentionMillis = 604800000;     // Stored attachments unused for this long are deleted
+    }
+    
+    @Getter
+    @Setter
+    public static class Routing {
+        private double latencyDecay = 0.3;          // EWMA weight of each new latency sample
+        private int consecutiveFailures = 5;        // 4xx/connection/validation failures in a row that eject a server
+        private long baseEjectionMillis = 30000;    // First ejection; doubles with each repeat
+        private long maxEjectionMillis = 300000;
+        private int maxEjectedPercent = 50;         // Never eject more than this share of servers
+        private long probeTimeoutMillis = 30000;    // A half-open probe that never reports is retried after this
+    }
+    
+    @Getter
+    @Setter
+    public static class Tls {
+        private boolean sessionResumption = true;   // One SSL context per server, so reconnects resume sessions
+        private int sessionCacheSize = 64;          // Cached client sessions per server
+        private int sessionTimeoutSeconds = 3600;
+    }
+    
+    @Getter
+    @Setter
+    public static class Retry {
+        private long baseDelayMillis = 1000;    // Backoff ceiling of the first retry, doubled per attempt
+        private long maxDelayMillis = 300000;
+        private long tickMillis = 100;          // Timing wheel resolution
+        private int wheelSize = 512;            // Timing wheel slots per rotation
+    }
+    
+    @Getter
+    @Setter
+    public static class Lanes {
+        private int transactionalWeight = 8;    // Share of contended connection slots, relative to the other lanes
+        private int normalWeight = 3;
+        private int bulkWeight = 1;
+        private double reservedShare = 0.2;     // Connections per server only TRANSACTIONAL may use
+    }
+    
+    @Getter
+    @Setter
+    public static class Jobs {
+        private long retentionMillis = 3600000;     // Jobs unchanged for this long are dropped from memory
+        private long progressIntervalMillis = 500;  // Minimum gap between SSE progress events
+        private long sseTimeoutMillis = 1800000;    // Progress streams are closed after this
+    }
+    
+    @Getter
+    @Setter
+    public static class Idempotency {
+        private boolean enabled = true;
+        private long ttlMillis = 86400000;              // Responses replayed for an Idempotency-Key this long
+        private boolean contentHash = false;            // Without a key, dedupe identical request bodies (opt-in)
+        private long contentHashTtlMillis = 600000;     // Shorter, as identical bodies may be meant twice
+        private int maxEntries = 100000;
+        private long inFlightWaitMillis = 60000;        // How long a duplicate waits for the original to finish
+        private boolean persistent = false;             // Also keep responses in the database, across restarts
+    }
+    
+    @Getter
+    @Setter
+    public static class Recording {
+        private boolean startOnBoot = false;            // Keep a rolling recording from startup, ready to dump
+        private String settings = "default";            // JFR configuration: default (about 1% overhead) or profile
+        private long maxAgeSeconds = 900;               // Window of history a dump covers
+        private long maxSizeBytes = 256 * 1024 * 1024;
+        private long thresholdMillis = 0;               // SMTP phase events shorter than this are not recorded
+    }
+    
+    @Getter
+    @Setter
+    public static class Mime {
+        private long bodyCacheMaxBytes = 16 * 1024 * 1024; // Encoded bodies kept for reuse across messages
+        private boolean mergeRecipients = true;            // Send identical bulk messages as one multi-recipient envelope
     }
     
     @Getter
@@ -54,5 +218,12 @@ public class MailProperties {
         private boolean startTls = true;
         private int connectionTimeout = 30000;
         private int readTimeout = 30000;
+        private int maxMessagesPerConnection = 0;       // Retire a connection after this many messages (0 = no limit)
+        private long maxConnectionLifetimeMillis = 0;   // Retire a connection this long after it opened (0 = no limit)
+        private int maxRecipientsPerMessage = 50;       // RCPT TO cap for merged envelopes
+        private double maxMessagesPerSecond = 0;        // Provider send rate (0 = no limit)
+        private int rateLimitBurst = 0;                 // Messages allowed at once after idling (0 = one second's worth)
+        private long maxMessagesPerDay = 0;             // Provider daily quota, counted per recipient (0 = no limit)
+        private Map<String, String> properties = new HashMap<>(); // Extra Jakarta Mail session properties
     }
 }
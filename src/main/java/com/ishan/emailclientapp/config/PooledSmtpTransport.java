@@ -0,0 +1,74 @@
+package com.ishan.emailclientapp.config;
+
+import jakarta.mail.Address;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Provider;
+import jakarta.mail.Session;
+import jakarta.mail.URLName;
+import org.eclipse.angus.mail.smtp.SMTPTransport;
+
+/**
+ * SMTPTransport that exposes its connected flag without I/O.
+ * SMTPTransport.isConnected() sends a NOOP on every call; the pool needs a free
+ * check for the common case and sends the NOOP only when a connection has sat idle
+ * or its last send failed (a server that hangs up mid-transaction leaves the flag set).
+ */
+public class PooledSmtpTransport extends SMTPTransport {
+
+    static final Provider PROVIDER = new Provider(Provider.Type.TRANSPORT, "smtp",
+            PooledSmtpTransport.class.getName(), "smtp-pool", null);
+
+    private volatile boolean open;
+    private volatile boolean lastSendFailed;
+    private volatile int messageCount;
+    private volatile long connectedAt;
+
+    public PooledSmtpTransport(Session session, URLName urlname) {
+        super(session, urlname);
+    }
+
+    /**
+     * Whether the connection is believed open: set by connect, cleared by close and by
+     * the transport itself when a command fails on a broken socket. Does not touch the network.
+     */
+    public boolean isOpen() {
+        return open;
+    }
+
+    public boolean lastSendFailed() {
+        return lastSendFailed;
+    }
+
+    /**
+     * Messages attempted on the current connection
+     */
+    public int getMessageCount() {
+        return messageCount;
+    }
+
+    /**
+     * When the current connection was opened, in epoch millis
+     */
+    public long getConnectedAt() {
+        return connectedAt;
+    }
+
+    @Override
+    public synchronized void sendMessage(Message message, Address[] addresses) throws MessagingException {
+        messageCount++;
+        lastSendFailed = true;
+        super.sendMessage(message, addresses);
+        lastSendFailed = false;
+    }
+
+    @Override
+    protected synchronized void setConnected(boolean connected) {
+        super.setConnected(connected);
+        if (connected && !open) {
+            connectedAt = System.currentTimeMillis();
+            messageCount = 0;
+        }
+        open = connected;
+    }
+}
@@ -0,0 +1,240 @@
+package com.ishan.emailclientapp.config;
+
+import com.ishan.emailclientapp.config.MailProperties.SmtpServer;
+import com.ishan.emailclientapp.jfr.ConnectEvent;
+import com.ishan.emailclientapp.jfr.ValidateEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.commons.pool2.BaseKeyedPooledObjectFactory;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keyed factory for SMTP Transport connections.
+ * The pool key is the server name, so every transport is created, validated
+ * and connected against the same server its Session was built for.
+ * Sessions are built once per server and shared by its transports and messages.
+ * Transports are connected when created (by a borrow or the evictor's minIdle top-up), and
+ * validation only costs a NOOP for connections that have been idle longer than validationIdleMillis
+ * or whose last send failed. TLS servers share one SSL socket factory, so reconnects resume the TLS session.
+ */
+public class SmtpConnectionPoolFactory extends BaseKeyedPooledObjectFactory<String, Transport> {
+    private static final Logger logger = LoggerFactory.getLogger(SmtpConnectionPoolFactory.class);
+
+    private final Map<String, SmtpServer> servers = new LinkedHashMap<>();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Timer> validationTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> connectTimers = new ConcurrentHashMap<>();
+    private final Map<String, SmtpSslSocketFactory> sslSocketFactories = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final MailProperties mailProperties;
+
+    public SmtpConnectionPoolFactory(List<SmtpServer> servers, MailProperties mailProperties, MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.mailProperties = mailProperties;
+        for (SmtpServer server : servers) {
+            this.servers.put(server.getName(), server);
+            this.sessions.put(server.getName(), buildSession(server));
+        }
+    }
+
+    /**
+     * Servers this factory can create connections for, in configuration order
+     */
+    public List<SmtpServer> getServers() {
+        return List.copyOf(servers.values());
+    }
+
+    public SmtpServer getServer(String name) {
+        SmtpServer server = servers.get(name);
+        if (server == null) {
+            throw new IllegalArgumentException("Unknown SMTP server: " + name);
+        }
+        return server;
+    }
+
+    /**
+     * The shared Session for a server, used for its transports and for building its messages
+     */
+    public Session getSession(String name) {
+        Session session = sessions.get(name);
+        if (session == null) {
+            throw new IllegalArgumentException("Unknown SMTP server: " + name);
+        }
+        return session;
+    }
+
+    private Session buildSession(SmtpServer server) {
+        Properties props = new Properties();
+        props.put("mail.smtp.host", server.getHost());
+        props.put("mail.smtp.port", server.getPort());
+        props.put("mail.smtp.auth", "true");
+        props.put("mail.smtp.starttls.enable", server.isStartTls());
+        props.put("mail.smtp.ssl.enable", server.isSsl());
+        props.put("mail.smtp.connectiontimeout", server.getConnectionTimeout());
+        props.put("mail.smtp.timeout", server.getReadTimeout());
+        props.put("mail.smtp.writetimeout", server.getReadTimeout());
+        props.putAll(server.getProperties());
+        boolean tls = server.isSsl() || server.isStartTls();
+        if (tls && mailProperties.getTls().isSessionResumption() && !props.containsKey("mail.smtp.ssl.socketFactory.class")) {
+            props.put("mail.smtp.ssl.socketFactory", buildSslSocketFactory(server, props.getProperty("mail.smtp.ssl.trust")));
+        }
+        return Session.getInstance(props, null);
+    }
+
+    /**
+     * The server's shared SSL socket factory, replacing Jakarta Mail's handling of mail.smtp.ssl.trust
+     */
+    private SmtpSslSocketFactory buildSslSocketFactory(SmtpServer server, String trustedHosts) {
+        boolean trustAll = trustedHosts != null
+                && ("*".equals(trustedHosts.trim()) || List.of(trustedHosts.trim().split("\\s+")).contains(server.getHost()));
+        MailProperties.Tls tls = mailProperties.getTls();
+        try {
+            SmtpSslSocketFactory factory = new SmtpSslSocketFactory(server.getName(), trustAll,
+                    tls.getSessionCacheSize(), tls.getSessionTimeoutSeconds(), meterRegistry);
+            sslSocketFactories.put(server.getName(), factory);
+            return factory;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to set up TLS for SMTP server " + server.getName(), e);
+        }
+    }
+
+    /**
+     * The shared SSL socket factory of a server, or null if it does not use TLS or brings its own factory
+     */
+    public SmtpSslSocketFactory getSslSocketFactory(String name) {
+        return sslSocketFactories.get(name);
+    }
+
+    @Override
+    public Transport create(String serverName) throws Exception {
+        SmtpServer server = getServer(serverName);
+        Session session = getSession(serverName);
+        // An explicit mail.smtp.class (e.g. an in-process test transport) wins over the pooled subclass
+        Transport transport = session.getProperty("mail.smtp.class") != null
+                ? session.getTransport("smtp")
+                : session.getTransport(PooledSmtpTransport.PROVIDER);
+
+        // Connect here, so borrowers get an open connection instead of paying TCP+TLS+AUTH inline
+        ConnectEvent event = new ConnectEvent();
+        event.begin();
+        long start = System.nanoTime();
+        boolean connected = false;
+        try {
+            transport.connect(server.getHost(), server.getPort(), server.getUsername(), server.getPassword());
+            connected = true;
+        } finally {
+            recordConnect(serverName, System.nanoTime() - start, connected);
+            event.commit(serverName, connected ? "success" : "failure");
+        }
+        logger.info("Connected new SMTP transport to {} ({}:{})", server.getName(), server.getHost(), server.getPort());
+        return transport;
+    }
+
+    @Override
+    public PooledObject<Transport> wrap(Transport transport) {
+        return new DefaultPooledObject<>(transport);
+    }
+
+    /**
+     * Used on borrow and by idle sweeps. A connection that was returned within validationIdleMillis
+     * is trusted if it is still open and its last send went through; older ones get a NOOP,
+     * which doubles as the idle keepalive.
+     */
+    @Override
+    public boolean validateObject(String serverName, PooledObject<Transport> pooledObject) {
+        Transport transport = pooledObject.getObject();
+        ValidateEvent event = new ValidateEvent();
+        event.begin();
+        if (transport instanceof PooledSmtpTransport pooled) {
+            if (!pooled.isOpen()) {
+                recordValidation(event, serverName, 0, "closed");
+                return false;
+            }
+            if (isExpired(serverName, pooled)) {
+                recordValidation(event, serverName, 0, "expired");
+                return false;
+            }
+            long idleMillis = Duration.between(pooledObject.getLastReturnInstant(), Instant.now()).toMillis();
+            if (idleMillis < mailProperties.getPool().getValidationIdleMillis() && !pooled.lastSendFailed()) {
+                recordValidation(event, serverName, 0, "trusted");
+                return true;
+            }
+        }
+
+        long start = System.nanoTime();
+        boolean valid = false;
+        try {
+            // SMTPTransport.isConnected() sends a NOOP and closes the connection if it fails
+            valid = transport.isConnected();
+            return valid;
+        } catch (Exception e) {
+            logger.warn("SMTP connection validation failed for {}", serverName, e);
+            return false;
+        } finally {
+            recordValidation(event, serverName, System.nanoTime() - start, valid ? "success" : "failure");
+        }
+    }
+
+    /**
+     * Whether the connection has reached the server's maxMessagesPerConnection or maxConnectionLifetimeMillis
+     * and should be retired before the provider closes or throttles it
+     */
+    public boolean isExpired(String serverName, Transport transport) {
+        if (!(transport instanceof PooledSmtpTransport pooled)) {
+            return false;
+        }
+        SmtpServer server = getServer(serverName);
+        return (server.getMaxMessagesPerConnection() > 0 && pooled.getMessageCount() >= server.getMaxMessagesPerConnection())
+                || (server.getMaxConnectionLifetimeMillis() > 0
+                    && System.currentTimeMillis() - pooled.getConnectedAt() >= server.getMaxConnectionLifetimeMillis());
+    }
+
+    private void recordValidation(ValidateEvent event, String serverName, long nanos, String outcome) {
+        event.commit(serverName, outcome);
+        validationTimers.computeIfAbsent(serverName + '/' + outcome, key -> Timer.builder("smtp.connection.validation")
+                .description("Connection validation: trusted (recently used), closed, expired, or a NOOP that succeeded or failed")
+                .tag("server", serverName)
+                .tag("outcome", outcome)
+                .register(meterRegistry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void recordConnect(String serverName, long nanos, boolean connected) {
+        String outcome = connected ? "success" : "failure";
+        connectTimers.computeIfAbsent(serverName + '/' + outcome, key -> Timer.builder("smtp.connection.connect")
+                .description("Connection establishment, including TLS and AUTH")
+                .tag("server", serverName)
+                .tag("outcome", outcome)
+                .register(meterRegistry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void destroyObject(String serverName, PooledObject<Transport> pooledObject) throws Exception {
+        try {
+            Transport transport = pooledObject.getObject();
+            // isConnected() would send a NOOP just before the QUIT
+            if (transport instanceof PooledSmtpTransport pooled ? pooled.isOpen() : transport.isConnected()) {
+                transport.close();
+            }
+            logger.debug("SMTP connection to {} destroyed", serverName);
+        } catch (Exception e) {
+            logger.warn("Error destroying SMTP connection to {}", serverName, e);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.ishan.emailclientapp.config;
+
+import com.ishan.emailclientapp.jfr.TlsHandshakeEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import javax.net.ssl.HandshakeCompletedEvent;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.security.cert.X509Certificate;
+
+/**
+ * SSLSocketFactory shared by every connection to one server, for both implicit TLS and STARTTLS.
+ * One SSLContext per server means one client session cache, so reconnects after eviction or a
+ * provider disconnect resume the TLS session instead of running a full handshake.
+ * Completed handshakes are counted as resumed or full, and timed as TlsHandshake flight recorder events.
+ */
+public class SmtpSslSocketFactory extends SSLSocketFactory {
+
+    private final String serverName;
+    private final SSLSocketFactory delegate;
+    private final Counter resumed;
+    private final Counter full;
+
+    /**
+     * @param trustAll trust the server's certificate without validation (mail.smtp.ssl.trust covering the host)
+     */
+    public SmtpSslSocketFactory(String serverName, boolean trustAll, int sessionCacheSize, int sessionTimeoutSeconds,
+                                MeterRegistry meterRegistry) throws GeneralSecurityException {
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, trustAll ? new TrustManager[] {new TrustAllManager()} : null, null);
+        SSLSessionContext sessions = context.getClientSessionContext();
+        sessions.setSessionCacheSize(sessionCacheSize);
+        sessions.setSessionTimeout(sessionTimeoutSeconds);
+        this.serverName = serverName;
+        this.delegate = context.getSocketFactory();
+        this.resumed = handshakeCounter(meterRegistry, serverName, "resumed");
+        this.full = handshakeCounter(meterRegistry, serverName, "full");
+    }
+
+    private static Counter handshakeCounter(MeterRegistry meterRegistry, String serverName, String type) {
+        return Counter.builder("smtp.tls.handshakes")
+                .description("Completed TLS handshakes, resumed from the session cache or full")
+                .tag("server", serverName)
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+
+    public double getResumedCount() {
+        return resumed.count();
+    }
+
+    public double getFullCount() {
+        return full.count();
+    }
+
+    private Socket track(Socket socket) {
+        if (socket instanceof SSLSocket sslSocket) {
+            long createdAt = System.currentTimeMillis();
+            TlsHandshakeEvent handshake = new TlsHandshakeEvent();
+            handshake.begin();
+            sslSocket.addHandshakeCompletedListener(event -> recordHandshake(event, createdAt, handshake));
+        }
+        return socket;
+    }
+
+    private void recordHandshake(HandshakeCompletedEvent event, long socketCreatedAt, TlsHandshakeEvent handshake) {
+        // A resumed session keeps the creation time of the handshake that established it
+        boolean wasResumed = event.getSession().getCreationTime() < socketCreatedAt;
+        if (wasResumed) {
+            resumed.increment();
+        } else {
+            full.increment();
+        }
+        handshake.commit(serverName, wasResumed ? "resumed" : "full");
+    }
+
+    @Override
+    public Socket createSocket(Socket socket, String host, int port, boolean autoClose) throws IOException {
+        return track(delegate.createSocket(socket, host, port, autoClose));
+    }
+
+    @Override
+    public Socket createSocket() throws IOException {
+        return track(delegate.createSocket());
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        return track(delegate.createSocket(host, port));
+    }
+
+    @Override
+    public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+        return track(delegate.createSocket(host, port, localHost, localPort));
+    }
+
+    @Override
+    public Socket createSocket(InetAddress host, int port) throws IOException {
+        return track(delegate.createSocket(host, port));
+    }
+
+    @Override
+    public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+        return track(delegate.createSocket(address, port, localAddress, localPort));
+    }
+
+    @Override
+    public String[] getDefaultCipherSuites() {
+        return delegate.getDefaultCipherSuites();
+    }
+
+    @Override
+    public String[] getSupportedCipherSuites() {
+        return delegate.getSupportedCipherSuites();
+    }
+
+    /**
+     * Accepts any certificate, for hosts listed in mail.smtp.ssl.trust
+     */
+    private static final class TrustAllManager implements X509TrustManager {
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType) {
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType) {
+        }
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return new X509Certificate[0];
+        }
+    }
+}
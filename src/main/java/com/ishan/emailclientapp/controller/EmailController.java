@@ -2,16 +2,33 @@ package com.ishan.emailclientapp.controller;
 
 import com.ishan.emailclientapp.model.EmailRequest;
 import com.ishan.emailclientapp.model.EmailResponse;
+import com.ishan.emailclientapp.model.Priority;
+import com.ishan.emailclientapp.service.AdmissionService;
+import com.ishan.emailclientapp.service.AttachmentStore;
+import com.ishan.emailclientapp.service.BulkJob;
+import com.ishan.emailclientapp.service.BulkJobService;
+import com.ishan.emailclientapp.service.BulkIngestService;
 import com.ishan.emailclientapp.service.EmailService;
+import com.ishan.emailclientapp.service.IdempotencyService;
+import com.ishan.emailclientapp.service.OutboxDispatcher;
+import com.ishan.emailclientapp.service.OutboxService;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CompletableFuture;
 import java.util.HashMap;
 
 @RestController
@@ -22,9 +39,56 @@ public class EmailController {
 
     @Autowired
     private EmailService emailService;
+    
+    @Autowired
+    private OutboxService outboxService;
+    
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+    
+    @Autowired
+    private AdmissionService admissionService;
+    
+    @Autowired
+    private BulkIngestService bulkIngestService;
+    
+    @Autowired
+    private AttachmentStore attachmentStore;
+    
+    @Autowired
+    private BulkJobService bulkJobService;
+    
+    @Autowired
+    private IdempotencyService idempotencyService;
 
+    /**
+     * The send endpoints take an optional Idempotency-Key header: a retry with the same key gets the original
+     * response instead of sending again. Requests without a key are only deduplicated by body when
+     * spring.mail.idempotency.contentHash is enabled.
+     */
     @PostMapping("/send")
-    public ResponseEntity<EmailResponse> sendEmail(@RequestBody EmailRequest emailRequest) {
+    public ResponseEntity<EmailResponse> sendEmail(@RequestBody EmailRequest emailRequest,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) throws IOException {
+        return idempotencyService.execute("send", idempotencyKey, emailRequest, () -> send(emailRequest));
+    }
+    
+    @PostMapping("/send-async")
+    public ResponseEntity<EmailResponse> sendEmailAsync(@RequestBody EmailRequest emailRequest,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) throws IOException {
+        return idempotencyService.execute("send-async", idempotencyKey, emailRequest, () -> queue(emailRequest));
+    }
+    
+    /**
+     * Queue a list of emails as a bulk job and return its id at once. Progress is at /jobs/{jobId}
+     * (or streamed from /jobs/{jobId}/events), and /jobs/{jobId}/failed lists the positions to resend.
+     */
+    @PostMapping("/send-bulk")
+    public ResponseEntity<EmailResponse> sendBulkEmails(@RequestBody List<EmailRequest> emailRequests,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) throws IOException {
+        return idempotencyService.execute("send-bulk", idempotencyKey, emailRequests, () -> queueBulk(emailRequests));
+    }
+    
+    private ResponseEntity<EmailResponse> send(EmailRequest emailRequest) {
         logger.info("Received email request: {}", emailRequest);
         
         boolean success = emailService.sendEmail(emailRequest);
@@ -36,36 +100,152 @@ public class EmailController {
         return ResponseEntity.ok(response);
     }
     
-    @PostMapping("/send-async")
-    public ResponseEntity<CompletableFuture<EmailResponse>> sendEmailAsync(@RequestBody EmailRequest emailRequest) {
+    private ResponseEntity<EmailResponse> queue(EmailRequest emailRequest) throws JsonProcessingException {
         logger.info("Received async email request: {}", emailRequest);
         
-        CompletableFuture<EmailResponse> futureResponse = emailService.sendEmailAsync(emailRequest)
-                .thenApply(success -> {
-                    EmailResponse response = new EmailResponse();
-                    response.setSuccess(success);
-                    response.setMessage(success ? "Email sent successfully" : "Failed to send email");
-                    return response;
-                });
+        EmailResponse response = new EmailResponse();
+        if (!emailService.isValidRequest(emailRequest)) {
+            response.setSuccess(false);
+            response.setMessage("Invalid email request");
+            return ResponseEntity.ok(response);
+        }
+        
+        AdmissionService.Decision decision = admissionService.tryAdmit(1);
+        if (!decision.admitted()) {
+            return rejected(decision);
+        }
+        
+        // Persist to the outbox and return; the dispatcher delivers it
+        List<Long> ids = enqueue(List.of(emailRequest));
+        response.setSuccess(true);
+        response.setMessage("Email queued for delivery");
+        response.setMessageId(String.valueOf(ids.get(0)));
         
-        return ResponseEntity.ok(futureResponse);
+        return ResponseEntity.accepted().body(response);
     }
     
-    @PostMapping("/send-bulk")
-    public ResponseEntity<EmailResponse> sendBulkEmails(@RequestBody List<EmailRequest> emailRequests) {
+    private ResponseEntity<EmailResponse> queueBulk(List<EmailRequest> emailRequests) throws JsonProcessingException {
         logger.info("Received bulk email request for {} emails", emailRequests.size());
         
-        boolean success = emailService.sendBulkEmails(emailRequests);
+        List<EmailRequest> validRequests = new ArrayList<>(emailRequests.size());
+        List<Integer> positions = new ArrayList<>(emailRequests.size());
+        List<Integer> invalidPositions = new ArrayList<>();
+        for (int i = 0; i < emailRequests.size(); i++) {
+            EmailRequest request = emailRequests.get(i);
+            if (!emailService.isValidRequest(request)) {
+                invalidPositions.add(i);
+                continue;
+            }
+            // Bulk intake rides the bulk lane unless a request asks for another
+            if (request.getPriority() == null) {
+                request.setPriority(Priority.BULK);
+            }
+            validRequests.add(request);
+            positions.add(i);
+        }
+        AdmissionService.Decision decision = admissionService.tryAdmit(validRequests.size());
+        if (!decision.admitted()) {
+            return rejected(decision);
+        }
+        BulkJob job = bulkJobService.create(emailRequests.size(), invalidPositions);
+        try {
+            enqueue(validRequests, job, positions);
+        } catch (RuntimeException | JsonProcessingException e) {
+            bulkJobService.discard(job.getId());
+            throw e;
+        }
         
         EmailResponse response = new EmailResponse();
-        response.setSuccess(success);
-        response.setMessage(success ? 
-            String.format("Bulk email send completed for %d emails", emailRequests.size()) :
-            "Failed to send some or all emails in bulk");
+        response.setSuccess(validRequests.size() == emailRequests.size());
+        response.setMessage(String.format("Queued %d of %d emails for delivery",
+                validRequests.size(), emailRequests.size()));
+        response.setMessageId(job.getId());
         
+        return ResponseEntity.accepted()
+                .header(HttpHeaders.LOCATION, "/api/email/jobs/" + job.getId())
+                .body(response);
+    }
+    
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<BulkJob.Progress> getJob(@PathVariable String jobId) {
+        BulkJob job = bulkJobService.find(jobId);
+        return job == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(job.progress());
+    }
+    
+    /**
+     * Positions (indexes in the submitted list) that failed delivery or were invalid, and the addresses
+     * that partly delivered positions did not reach; those must not be resent whole
+     */
+    @GetMapping("/jobs/{jobId}/failed")
+    public ResponseEntity<Map<String, Object>> getJobFailures(@PathVariable String jobId) {
+        BulkJob job = bulkJobService.find(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("jobId", jobId);
+        response.put("failed", job.positions(BulkJob.Status.FAILED));
+        response.put("invalid", job.positions(BulkJob.Status.INVALID));
+        response.put("partial", job.undelivered());
         return ResponseEntity.ok(response);
     }
     
+    @GetMapping(value = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> watchJob(@PathVariable String jobId) {
+        SseEmitter emitter = bulkJobService.watch(jobId);
+        return emitter == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(emitter);
+    }
+    
+    /**
+     * Streamed bulk intake: NDJSON or a JSON array, read incrementally and queued in outbox-sized chunks.
+     * If intake fills up mid-stream, the reply carries Retry-After and how many requests were consumed,
+     * so the client can resend the rest.
+     */
+    @PostMapping(value = "/send-bulk/stream", consumes = {"application/x-ndjson", MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<EmailResponse> sendBulkStream(InputStream body) throws IOException {
+        BulkIngestService.Result result = bulkIngestService.ingest(body);
+        logger.info("Streamed bulk request: {} queued, {} invalid, {} consumed",
+                result.queued(), result.invalid(), result.processed());
+        
+        EmailResponse response = new EmailResponse();
+        response.setSuccess(result.complete() && result.invalid() == 0);
+        response.setMessage(String.format("Queued %d emails, skipped %d invalid, consumed %d requests%s",
+                result.queued(), result.invalid(), result.processed(),
+                result.error() == null ? "" : "; stopped at malformed input: " + result.error()));
+        
+        if (result.rejection() != null) {
+            ResponseEntity.BodyBuilder rejected = ResponseEntity.status(result.rejection().status());
+            if (result.rejection().retryAfterSeconds() > 0) {
+                rejected.header(HttpHeaders.RETRY_AFTER, String.valueOf(result.rejection().retryAfterSeconds()));
+            }
+            return rejected.body(response);
+        }
+        if (result.error() != null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+        return ResponseEntity.accepted().body(response);
+    }
+    
+    /**
+     * Upload an attachment once and reference it from any number of requests by contentHash.
+     * The upload is streamed into the store; identical content returns the existing hash.
+     */
+    @PostMapping(value = "/attachments", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<Map<String, Object>> uploadAttachment(@RequestParam("file") MultipartFile file) throws IOException {
+        AttachmentStore.StoredAttachment stored;
+        try (InputStream content = file.getInputStream()) {
+            stored = attachmentStore.store(content);
+        }
+        logger.info("Stored attachment {} as {} ({} bytes)", file.getOriginalFilename(), stored.contentHash(), stored.size());
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("contentHash", stored.contentHash());
+        response.put("size", stored.size());
+        response.put("fileName", file.getOriginalFilename());
+        response.put("fileType", file.getContentType());
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+    
     @PostMapping("/send-legacy")
     public ResponseEntity<EmailResponse> sendEmailLegacy(@RequestBody EmailRequest emailRequest) {
         logger.info("Received legacy email request: {}", emailRequest);
@@ -85,6 +265,11 @@ public class EmailController {
         return ResponseEntity.ok(Map.of("poolStats", stats));
     }
     
+    @GetMapping("/queue/stats")
+    public ResponseEntity<Map<String, Object>> getQueueStats() {
+        return ResponseEntity.ok(admissionService.getStatistics());
+    }
+    
     @GetMapping("/health")
     public ResponseEntity<Map<String, String>> health() {
         return ResponseEntity.ok(Map.of("status", "UP", "service", "SMTP Pool Client"));
@@ -101,4 +286,34 @@ public class EmailController {
         config.put("poolMinIdle", emailService.getMailProperties().getPool().getMinIdle());
         return ResponseEntity.ok(config);
     }
+    
+    private List<Long> enqueue(List<EmailRequest> emailRequests) throws JsonProcessingException {
+        return enqueue(emailRequests, null, null);
+    }
+    
+    private List<Long> enqueue(List<EmailRequest> emailRequests, BulkJob job, List<Integer> positions)
+            throws JsonProcessingException {
+        List<Long> ids;
+        try {
+            ids = outboxService.enqueue(emailRequests, job, positions);
+        } catch (RuntimeException | JsonProcessingException e) {
+            admissionService.cancel(emailRequests.size());
+            throw e;
+        }
+        outboxDispatcher.wakeUp();
+        return ids;
+    }
+    
+    private ResponseEntity<EmailResponse> rejected(AdmissionService.Decision decision) {
+        EmailResponse response = new EmailResponse();
+        response.setSuccess(false);
+        if (decision.status() == HttpStatus.PAYLOAD_TOO_LARGE) {
+            response.setMessage("Too many emails for one request, split it into smaller requests");
+            return ResponseEntity.status(decision.status()).body(response);
+        }
+        response.setMessage("Email intake is over capacity, retry later");
+        return ResponseEntity.status(decision.status())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(decision.retryAfterSeconds()))
+                .body(response);
+    }
 }
@@ -13,4 +13,5 @@ public class AttachmentDTO {
     private String fileName;
     private String fileType;
     private byte[] content;
+    private String contentHash; // Reference to a stored attachment, used instead of content
 }
@@ -0,0 +1,18 @@
+package com.ishan.emailclientapp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Wait for a pooled connection, including any validation or connect the pool does for it
+ */
+@Name("com.ishan.smtp.Borrow")
+@Label("SMTP Borrow")
+@Category({"SMTP Pool"})
+@Description("Borrowing a connection from the pool")
+@StackTrace(false)
+public class BorrowEvent extends SmtpEvent {
+}
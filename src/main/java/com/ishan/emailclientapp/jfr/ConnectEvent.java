@@ -0,0 +1,18 @@
+package com.ishan.emailclientapp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Opening a connection: TCP, greeting, EHLO, TLS and AUTH
+ */
+@Name("com.ishan.smtp.Connect")
+@Label("SMTP Connect")
+@Category({"SMTP Pool"})
+@Description("Connecting a new pooled transport, including TLS and AUTH")
+@StackTrace(false)
+public class ConnectEvent extends SmtpEvent {
+}
@@ -0,0 +1,37 @@
+package com.ishan.emailclientapp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One sendMessage on a borrowed connection: MAIL FROM, RCPT TO and DATA.
+ * The outcome is the SMTP reply class (2xx/4xx/5xx/connection), or partial when some recipients were refused.
+ */
+@Name("com.ishan.smtp.Send")
+@Label("SMTP Send")
+@Category({"SMTP Pool"})
+@Description("Sending a message on a pooled connection")
+@StackTrace(false)
+public class SendEvent extends SmtpEvent {
+
+    @Label("Message Size")
+    @Description("Approximate payload size: subject, body and attachments")
+    @DataAmount
+    private long messageSize;
+
+    @Label("Recipients")
+    private int recipients;
+
+    /**
+     * Like {@link #commit(String, String)}, with the message's size and RCPT TO count
+     */
+    public void commit(String server, String outcome, long messageSize, int recipients) {
+        this.messageSize = messageSize;
+        this.recipients = recipients;
+        commit(server, outcome);
+    }
+}
@@ -0,0 +1,32 @@
+package com.ishan.emailclientapp.jfr;
+
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * Base of the JDK Flight Recorder events for the SMTP phases.
+ * Create the event and call begin() before the phase, then commit with the server and outcome after it.
+ * When no recording has the event enabled, begin, end and shouldCommit are no-ops the JIT removes,
+ * and the event object itself does not escape, so the instrumentation costs next to nothing.
+ * Fields are protected, as JFR leaves out private fields declared in a superclass.
+ */
+public abstract class SmtpEvent extends Event {
+
+    @Label("Server")
+    protected String server;
+
+    @Label("Outcome")
+    protected String outcome;
+
+    /**
+     * End the event and commit it if a recording wants it (enabled and over its threshold)
+     */
+    public void commit(String server, String outcome) {
+        end();
+        if (shouldCommit()) {
+            this.server = server;
+            this.outcome = outcome;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.ishan.emailclientapp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * From the TLS socket's creation to its completed handshake; the outcome is resumed or full
+ */
+@Name("com.ishan.smtp.TlsHandshake")
+@Label("SMTP TLS Handshake")
+@Category({"SMTP Pool"})
+@Description("TLS handshake of an SMTP connection, resumed from the session cache or full")
+@StackTrace(false)
+public class TlsHandshakeEvent extends SmtpEvent {
+}
@@ -0,0 +1,18 @@
+package com.ishan.emailclientapp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Validation of a pooled connection: trusted without I/O, closed, expired, or a NOOP that succeeded or failed
+ */
+@Name("com.ishan.smtp.Validate")
+@Label("SMTP Validate")
+@Category({"SMTP Pool"})
+@Description("Validating a pooled connection before use or while idle")
+@StackTrace(false)
+public class ValidateEvent extends SmtpEvent {
+}
@@ -22,5 +22,6 @@ public class EmailRequest {
     private String body;
     private boolean isHtml; //flag to indicate if body is html
     private List<AttachmentDTO> attachments;
+    private Priority priority; // null means NORMAL, or BULK on the bulk endpoints
 
 }
@@ -0,0 +1,45 @@
+package com.ishan.emailclientapp.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * A completed send remembered under its idempotency key, so a retry after a restart is answered
+ * with the original response instead of sending again
+ */
+@Entity
+@Table(name = "idempotency_record", indexes = @Index(name = "idx_idempotency_expires", columnList = "expiresAt"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+
+    // SHA-256 of endpoint and key, so client keys of any length fit
+    @Id
+    @Column(length = 64)
+    private String id;
+
+    // SHA-256 of the request body the key was first used with
+    @Column(nullable = false, length = 64)
+    private String fingerprint;
+
+    private int status;
+
+    @Lob
+    @Column(nullable = false)
+    private String response;
+
+    @Column(nullable = false)
+    private Instant expiresAt;
+}
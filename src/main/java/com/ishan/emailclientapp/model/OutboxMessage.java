@@ -0,0 +1,87 @@
+package com.ishan.emailclientapp.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Lob;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import org.hibernate.annotations.ColumnDefault;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * A queued email waiting to be delivered by the outbox dispatcher.
+ * The request itself is stored as JSON so the row survives restarts unchanged.
+ */
+@Entity
+@Table(name = "email_outbox", indexes = {
+        @Index(name = "idx_outbox_status_priority_next", columnList = "status, priority, nextAttemptAt"),
+        @Index(name = "idx_outbox_job", columnList = "jobId")})
+@Getter
+@Setter
+@NoArgsConstructor
+public class OutboxMessage {
+
+    // Sequence (not identity) ids so Hibernate can batch the inserts
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_seq")
+    @SequenceGenerator(name = "outbox_seq", sequenceName = "email_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Lob
+    @Column(nullable = false)
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private OutboxStatus status = OutboxStatus.PENDING;
+
+    // Lane the row is claimed in; copied from the request so claims can filter on it.
+    // The default lets schema updates add the column to outboxes that already hold rows.
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    @ColumnDefault("'NORMAL'")
+    private Priority priority = Priority.NORMAL;
+
+    private int attempts;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    @Column(nullable = false)
+    private Instant nextAttemptAt;
+
+    private String leaseOwner;
+
+    private Instant leaseUntil;
+
+    private Instant sentAt;
+
+    // Bulk job the row belongs to, its position in the submitted list and the list's size; null outside a job
+    @Column(length = 36)
+    private String jobId;
+
+    private Integer jobIndex;
+
+    private Integer jobTotal;
+
+    // Addresses a partly delivered row did not reach, comma-separated; null if it reached all or none
+    @Lob
+    private String undelivered;
+
+    public OutboxMessage(String payload, Priority priority, Instant now) {
+        this.payload = payload;
+        this.priority = priority;
+        this.createdAt = now;
+        this.nextAttemptAt = now;
+    }
+}
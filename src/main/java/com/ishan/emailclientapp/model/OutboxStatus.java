@@ -0,0 +1,8 @@
+package com.ishan.emailclientapp.model;
+
+public enum OutboxStatus {
+    PENDING,
+    IN_PROGRESS,
+    SENT,
+    FAILED
+}
@@ -0,0 +1,17 @@
+package com.ishan.emailclientapp.model;
+
+/**
+ * Dispatch lane of a message, highest first
+ */
+public enum Priority {
+    TRANSACTIONAL,
+    NORMAL,
+    BULK;
+
+    /**
+     * Lane of a request, NORMAL when it names none
+     */
+    public static Priority of(EmailRequest request) {
+        return request == null || request.getPriority() == null ? NORMAL : request.getPriority();
+    }
+}
@@ -0,0 +1,89 @@
+package com.ishan.emailclientapp.repository;
+
+import com.ishan.emailclientapp.model.OutboxMessage;
+import com.ishan.emailclientapp.model.OutboxStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxRepository extends JpaRepository<OutboxMessage, Long> {
+
+    /**
+     * Lock a batch of deliverable rows of one priority lane: pending ones that are due, plus in-progress ones
+     * whose lease expired (their worker died). Rows locked by another worker are skipped.
+     * Native because Hibernate's H2 dialect drops SKIP LOCKED from lock hints.
+     */
+    @Query(value = "select * from email_outbox " +
+                   "where priority = :priority " +
+                   "and ((status = 'PENDING' and next_attempt_at <= :now) " +
+                   "or (status = 'IN_PROGRESS' and lease_until < :now)) " +
+                   "order by id limit :limit for update skip locked", nativeQuery = true)
+    List<OutboxMessage> findClaimable(@Param("priority") String priority, @Param("now") Instant now,
+                                      @Param("limit") int limit);
+
+    @Modifying
+    @Query("update OutboxMessage m set m.status = :status, m.leaseOwner = :owner, m.leaseUntil = :leaseUntil " +
+           "where m.id in :ids")
+    int lease(@Param("ids") Collection<Long> ids, @Param("status") OutboxStatus status,
+              @Param("owner") String owner, @Param("leaseUntil") Instant leaseUntil);
+
+    @Modifying
+    @Query("update OutboxMessage m set m.status = com.ishan.emailclientapp.model.OutboxStatus.SENT, " +
+           "m.sentAt = :now, m.attempts = m.attempts + 1, m.leaseOwner = null, m.leaseUntil = null " +
+           "where m.id in :ids and m.leaseOwner = :owner")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("owner") String owner, @Param("now") Instant now);
+
+    /**
+     * Settle a row that reached only some of its recipients: it was sent and must not be sent again,
+     * and the addresses it did not reach are kept for its job
+     */
+    @Modifying
+    @Query("update OutboxMessage m set m.status = com.ishan.emailclientapp.model.OutboxStatus.SENT, " +
+           "m.sentAt = :now, m.attempts = m.attempts + 1, m.undelivered = :undelivered, " +
+           "m.leaseOwner = null, m.leaseUntil = null " +
+           "where m.id = :id and m.leaseOwner = :owner")
+    int markPartial(@Param("id") Long id, @Param("owner") String owner, @Param("now") Instant now,
+                    @Param("undelivered") String undelivered);
+
+    @Modifying
+    @Query("update OutboxMessage m set m.status = com.ishan.emailclientapp.model.OutboxStatus.PENDING, " +
+           "m.nextAttemptAt = :retryAt, m.attempts = m.attempts + 1, m.leaseOwner = null, m.leaseUntil = null " +
+           "where m.id in :ids and m.leaseOwner = :owner")
+    int markRetry(@Param("ids") Collection<Long> ids, @Param("owner") String owner, @Param("retryAt") Instant retryAt);
+
+    /**
+     * Count a failed attempt but keep the row leased, while the worker retries it in memory
+     */
+    @Modifying
+    @Query("update OutboxMessage m set m.attempts = m.attempts + 1, m.leaseUntil = :leaseUntil " +
+           "where m.id in :ids and m.leaseOwner = :owner")
+    int deferLeased(@Param("ids") Collection<Long> ids, @Param("owner") String owner,
+                    @Param("leaseUntil") Instant leaseUntil);
+
+    @Modifying
+    @Query("update OutboxMessage m set m.status = com.ishan.emailclientapp.model.OutboxStatus.FAILED, " +
+           "m.attempts = m.attempts + 1, m.leaseOwner = null, m.leaseUntil = null " +
+           "where m.id in :ids and m.leaseOwner = :owner")
+    int markRejected(@Param("ids") Collection<Long> ids, @Param("owner") String owner);
+
+    @Modifying
+    @Query("update OutboxMessage m set m.status = com.ishan.emailclientapp.model.OutboxStatus.FAILED " +
+           "where m.id in :ids and m.status = com.ishan.emailclientapp.model.OutboxStatus.PENDING " +
+           "and m.attempts >= :maxAttempts")
+    int markExhausted(@Param("ids") Collection<Long> ids, @Param("maxAttempts") int maxAttempts);
+
+    /**
+     * Position, status, submitted total and undelivered addresses of every row of a bulk job
+     */
+    @Query("select m.jobIndex, m.status, m.jobTotal, m.undelivered from OutboxMessage m where m.jobId = :jobId")
+    List<Object[]> findJobStatuses(@Param("jobId") String jobId);
+
+    long countByStatus(OutboxStatus status);
+
+    long countByStatusIn(Collection<OutboxStatus> statuses);
+}
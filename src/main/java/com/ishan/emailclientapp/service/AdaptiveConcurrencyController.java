@@ -0,0 +1,149 @@
+package com.ishan.emailclientapp.service;
+
+import com.ishan.emailclientapp.config.MailProperties;
+import com.ishan.emailclientapp.config.MailProperties.SmtpServer;
+import com.ishan.emailclientapp.config.SmtpConnectionPoolFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AIMD controller for the per-server concurrency limits.
+ * Every window it looks at each server's throttle replies (421/4xx), service latency
+ * (borrow wait plus send) against a slowly tracked baseline, and whether senders had to queue:
+ * throttling or latency blow-up shrinks the limit multiplicatively, queueing under healthy
+ * latency grows it by one, within [minLimit, maxConnectionsPerServer].
+ */
+@Service
+public class AdaptiveConcurrencyController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyController.class);
+
+    /** Weight of a window's latency when the baseline drifts upwards */
+    private static final double BASELINE_DRIFT = 0.02;
+
+    @Autowired
+    private ServerConcurrencyLimiter concurrencyLimiter;
+
+    @Autowired
+    private SmtpConnectionPoolFactory smtpConnectionPoolFactory;
+
+    @Autowired
+    private MailProperties mailProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    /**
+     * Observations for one server since the last adjustment, plus its latency baseline
+     */
+    private static final class Window {
+        final LongAdder sends = new LongAdder();
+        final LongAdder sendNanos = new LongAdder();
+        final LongAdder borrows = new LongAdder();
+        final LongAdder borrowNanos = new LongAdder();
+        final LongAdder throttled = new LongAdder();
+        double baselineNanos;
+    }
+
+    @PostConstruct
+    public void init() {
+        boolean enabled = mailProperties.getPool().getAdaptive().isEnabled();
+        concurrencyLimiter.setAdaptive(enabled);
+        for (SmtpServer server : smtpConnectionPoolFactory.getServers()) {
+            windows.put(server.getName(), new Window());
+            Gauge.builder("smtp.concurrency.limit", concurrencyLimiter, limiter -> limiter.getLimit(server.getName()))
+                    .description("Current concurrency limit of the server")
+                    .tag("server", server.getName())
+                    .register(meterRegistry);
+        }
+        logger.info("Adaptive concurrency control {}", enabled ? "enabled" : "disabled");
+    }
+
+    /**
+     * Record a finished send
+     *
+     * @param replyCode SMTP reply code, 250 for success, SmtpReplies.UNKNOWN if there was none
+     */
+    public void recordSend(String server, long nanos, int replyCode) {
+        Window window = windows.get(server);
+        if (window == null) {
+            return;
+        }
+        window.sends.increment();
+        window.sendNanos.add(nanos);
+        if (replyCode >= 400 && replyCode < 500) {
+            window.throttled.increment();
+        }
+    }
+
+    public void recordBorrowWait(String server, long nanos) {
+        Window window = windows.get(server);
+        if (window != null) {
+            window.borrows.increment();
+            window.borrowNanos.add(nanos);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${spring.mail.pool.adaptive.intervalMillis:1000}",
+            initialDelayString = "${spring.mail.pool.adaptive.intervalMillis:1000}")
+    public void adjust() {
+        MailProperties.Adaptive adaptive = mailProperties.getPool().getAdaptive();
+        if (!adaptive.isEnabled()) {
+            return;
+        }
+        windows.forEach((server, window) -> adjust(server, window, adaptive));
+    }
+
+    private void adjust(String server, Window window, MailProperties.Adaptive adaptive) {
+        long sends = window.sends.sumThenReset();
+        long sendNanos = window.sendNanos.sumThenReset();
+        long borrows = window.borrows.sumThenReset();
+        long borrowNanos = window.borrowNanos.sumThenReset();
+        long throttled = window.throttled.sumThenReset();
+        long contended = concurrencyLimiter.drainContended(server);
+
+        int limit = concurrencyLimiter.getLimit(server);
+        int maxLimit = concurrencyLimiter.maxLimit();
+        int minLimit = Math.min(Math.max(adaptive.getMinLimit(), 1), maxLimit);
+        int target = limit;
+        String reason = null;
+
+        double latency = sends == 0 ? 0 : (double) sendNanos / sends + (borrows == 0 ? 0 : (double) borrowNanos / borrows);
+        if (throttled > 0) {
+            target = (int) (limit * adaptive.getBackoffRatio());
+            reason = throttled + " throttle replies";
+        } else if (sends > 0 && window.baselineNanos > 0 && latency > window.baselineNanos * adaptive.getLatencyTolerance()) {
+            target = (int) (limit * adaptive.getBackoffRatio());
+            reason = String.format("latency %.1fms over baseline %.1fms", latency / 1e6, window.baselineNanos / 1e6);
+        } else if (contended > 0 && limit < maxLimit) {
+            target = limit + 1;
+            reason = contended + " queued acquires";
+        }
+
+        if (sends > 0) {
+            // Follow improvements at once, degradations slowly, so the baseline stays near no-load latency
+            window.baselineNanos = window.baselineNanos == 0 || latency < window.baselineNanos
+                    ? latency
+                    : window.baselineNanos + (latency - window.baselineNanos) * BASELINE_DRIFT;
+        }
+
+        target = Math.max(minLimit, Math.min(target, maxLimit));
+        if (target != limit) {
+            concurrencyLimiter.setLimit(server, target);
+            logger.info("Concurrency limit of {} {} from {} to {} ({})",
+                    server, target > limit ? "raised" : "lowered", limit, target, reason);
+        }
+    }
+}
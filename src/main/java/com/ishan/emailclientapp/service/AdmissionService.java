@@ -0,0 +1,147 @@
+package com.ishan.emailclientapp.service;
+
+import com.ishan.emailclientapp.config.MailProperties;
+import com.ishan.emailclientapp.model.OutboxStatus;
+import com.ishan.emailclientapp.repository.OutboxRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control for the outbox intake. Intake stops once the queue reaches the high
+ * watermark and resumes only after it drains below the low watermark, so callers get a fast
+ * 429/503 with a Retry-After estimate instead of a queue that grows until something times out.
+ * A single request larger than the high watermark could never be admitted, so it gets a 413
+ * straight away and leaves intake open for everyone else.
+ */
+@Service
+public class AdmissionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionService.class);
+    private static final double DRAIN_RATE_SMOOTHING = 0.3;
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Autowired
+    private MailProperties mailProperties;
+
+    private final AtomicLong queueDepth = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private volatile boolean shedding;
+    private volatile double drainRate; // messages per second, smoothed
+    private long lastProcessed;
+    private long lastSampleNanos = System.nanoTime();
+
+    public record Decision(boolean admitted, HttpStatus status, long retryAfterSeconds) {
+    }
+
+    @PostConstruct
+    public void init() {
+        refreshQueueDepth();
+    }
+
+    /**
+     * Reserve room for count emails, or say when to come back
+     */
+    public Decision tryAdmit(int count) {
+        MailProperties.Admission admission = mailProperties.getAdmission();
+        if (count > admission.getHighWatermark()) {
+            // Says nothing about the queue, and no amount of waiting would make it fit
+            return new Decision(false, HttpStatus.PAYLOAD_TOO_LARGE, 0);
+        }
+        if (shedding && queueDepth.get() <= admission.getLowWatermark()) {
+            shedding = false;
+            logger.info("Intake queue drained to {}, accepting requests again", queueDepth.get());
+        }
+        if (!shedding) {
+            long depth = queueDepth.addAndGet(count);
+            if (depth <= admission.getHighWatermark()) {
+                return new Decision(true, HttpStatus.ACCEPTED, 0);
+            }
+            queueDepth.addAndGet(-count);
+            shedding = true;
+            logger.warn("Intake queue reached high watermark ({}), rejecting requests", admission.getHighWatermark());
+        }
+        return reject(admission);
+    }
+
+    /**
+     * Give back a reservation that was never enqueued
+     */
+    public void cancel(int count) {
+        queueDepth.addAndGet(-count);
+    }
+
+    /**
+     * Called by the dispatcher for every message it has taken off the queue
+     */
+    public void onProcessed(int count) {
+        processed.addAndGet(count);
+    }
+
+    private Decision reject(MailProperties.Admission admission) {
+        double rate = drainRate;
+        if (rate < 0.01) {
+            // Nothing is draining: delivery is stalled, not just busy
+            return new Decision(false, HttpStatus.SERVICE_UNAVAILABLE, admission.getMaxRetryAfterSeconds());
+        }
+        long backlog = Math.max(queueDepth.get() - admission.getLowWatermark(), 1);
+        long retryAfter = (long) Math.ceil(backlog / rate);
+        return new Decision(false, HttpStatus.TOO_MANY_REQUESTS,
+                Math.max(1, Math.min(retryAfter, admission.getMaxRetryAfterSeconds())));
+    }
+
+    /**
+     * Resync the queue depth with the outbox and update the smoothed drain rate
+     */
+    @Scheduled(fixedRate = 1000)
+    public synchronized void refresh() {
+        long now = System.nanoTime();
+        long total = processed.get();
+        double seconds = (now - lastSampleNanos) / 1_000_000_000.0;
+        if (seconds > 0) {
+            double sample = (total - lastProcessed) / seconds;
+            drainRate = DRAIN_RATE_SMOOTHING * sample + (1 - DRAIN_RATE_SMOOTHING) * drainRate;
+        }
+        lastProcessed = total;
+        lastSampleNanos = now;
+        refreshQueueDepth();
+    }
+
+    private void refreshQueueDepth() {
+        try {
+            queueDepth.set(outboxRepository.countByStatusIn(List.of(OutboxStatus.PENDING, OutboxStatus.IN_PROGRESS)));
+        } catch (Exception e) {
+            logger.warn("Unable to refresh outbox queue depth", e);
+        }
+    }
+
+    public long getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    public double getDrainRate() {
+        return drainRate;
+    }
+
+    public Map<String, Object> getStatistics() {
+        MailProperties.Admission admission = mailProperties.getAdmission();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("queueDepth", queueDepth.get());
+        stats.put("highWatermark", admission.getHighWatermark());
+        stats.put("lowWatermark", admission.getLowWatermark());
+        stats.put("drainRatePerSecond", drainRate);
+        stats.put("accepting", !shedding);
+        return stats;
+    }
+}
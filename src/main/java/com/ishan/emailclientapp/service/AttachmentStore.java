@@ -0,0 +1,202 @@
+package com.ishan.emailclientapp.service;
+
+import com.ishan.emailclientapp.config.MailProperties;
+import com.ishan.emailclientapp.dtos.AttachmentDTO;
+import com.ishan.emailclientapp.model.EmailRequest;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeBodyPart;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed attachment storage. Content is streamed to disk already base64-encoded and
+ * named by the SHA-256 of the raw bytes, so an attachment shared by a whole campaign is stored,
+ * read and encoded once, and each message streams the encoded file into the connection.
+ */
+@Service
+public class AttachmentStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(AttachmentStore.class);
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final String ENCODED_SUFFIX = ".b64";
+    private static final String DEFAULT_TYPE = "application/octet-stream";
+
+    @Autowired
+    private MailProperties mailProperties;
+
+    private Path directory;
+    private final Map<String, Long> encodedSizes = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastUsed = new ConcurrentHashMap<>();
+
+    public record StoredAttachment(String contentHash, long size) {
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        directory = Paths.get(mailProperties.getAttachments().getDirectory()).toAbsolutePath();
+        Files.createDirectories(directory);
+        logger.info("Attachment store at {}", directory);
+    }
+
+    /**
+     * Stream content into the store; identical content resolves to the existing entry
+     */
+    public StoredAttachment store(InputStream content) throws IOException {
+        MessageDigest digest = sha256();
+        Path temp = Files.createTempFile(directory, "upload-", ".tmp");
+        try {
+            long size;
+            try (InputStream in = new DigestInputStream(content, digest);
+                 OutputStream out = Base64.getMimeEncoder().wrap(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                size = in.transferTo(out);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path target = encodedPath(hash);
+            if (Files.exists(target)) {
+                logger.debug("Attachment {} already stored", hash);
+                touch(hash, target);
+            } else {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                logger.debug("Stored attachment {} ({} bytes)", hash, size);
+                lastUsed.put(hash, System.currentTimeMillis());
+            }
+            return new StoredAttachment(hash, size);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Replace inline attachment content above the spill threshold with a stored reference,
+     * so outbox payloads and queued requests don't carry the bytes
+     */
+    public void externalize(EmailRequest emailRequest) throws IOException {
+        if (emailRequest.getAttachments() == null) {
+            return;
+        }
+        int threshold = mailProperties.getAttachments().getSpillThresholdBytes();
+        for (AttachmentDTO attachment : emailRequest.getAttachments()) {
+            byte[] content = attachment.getContent();
+            if (content != null && content.length > threshold) {
+                attachment.setContentHash(store(new ByteArrayInputStream(content)).contentHash());
+                attachment.setContent(null);
+            }
+        }
+    }
+
+    /**
+     * MIME part that streams the stored, pre-encoded content
+     */
+    public MimeBodyPart part(AttachmentDTO attachment) throws MessagingException {
+        String hash = attachment.getContentHash();
+        Path encoded = encodedPath(hash);
+        String contentType = attachment.getFileType() == null ? DEFAULT_TYPE : attachment.getFileType();
+        touch(hash, encoded);
+        return new StoredAttachmentPart(encoded, encodedSize(hash, encoded), attachment.getFileName(), contentType);
+    }
+
+    /**
+     * Approximate raw size of a stored attachment, or 0 if it isn't stored
+     */
+    public long size(String contentHash) {
+        try {
+            return encodedSize(contentHash, encodedPath(contentHash)) * 3 / 4;
+        } catch (MessagingException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Delete entries that haven't been stored or sent within the retention period
+     */
+    @Scheduled(fixedDelay = 3600000, initialDelay = 3600000)
+    public void sweep() {
+        long cutoff = System.currentTimeMillis() - mailProperties.getAttachments().getRetentionMillis();
+        int deleted = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String hash = name.endsWith(ENCODED_SUFFIX) ? name.substring(0, name.length() - ENCODED_SUFFIX.length()) : null;
+                long used = Math.max(Files.getLastModifiedTime(file).toMillis(), hash == null ? 0 : lastUsed.getOrDefault(hash, 0L));
+                if (used < cutoff && Files.deleteIfExists(file)) {
+                    deleted++;
+                    if (hash != null) {
+                        encodedSizes.remove(hash);
+                        lastUsed.remove(hash);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Attachment sweep failed", e);
+        }
+        if (deleted > 0) {
+            logger.info("Deleted {} expired attachments", deleted);
+        }
+    }
+
+    /**
+     * Mark an entry used, on disk as well, so retention survives a restart
+     */
+    private void touch(String hash, Path encoded) {
+        long now = System.currentTimeMillis();
+        lastUsed.put(hash, now);
+        try {
+            Files.setLastModifiedTime(encoded, FileTime.fromMillis(now));
+        } catch (IOException e) {
+            // Missing files are reported when the content is read
+            logger.debug("Could not touch attachment {}", hash, e);
+        }
+    }
+
+    private long encodedSize(String hash, Path encoded) throws MessagingException {
+        Long size = encodedSizes.get(hash);
+        if (size == null) {
+            try {
+                size = Files.size(encoded);
+            } catch (IOException e) {
+                throw new MessagingException("Unknown attachment " + hash, e);
+            }
+            encodedSizes.put(hash, size);
+        }
+        return size;
+    }
+
+    private Path encodedPath(String hash) {
+        if (hash == null || !HASH.matcher(hash).matches()) {
+            throw new IllegalArgumentException("Invalid attachment hash: " + hash);
+        }
+        return directory.resolve(hash + ENCODED_SUFFIX);
+    }
+
+    private MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.ishan.emailclientapp.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Outcome of a batch send: whether each request was delivered to all of its recipients,
+ * and the per-recipient detail behind it
+ *
+ * @param server     the server the batch went through
+ * @param delivered  per request, in batch order
+ * @param retryable  per request: not delivered, but only because of transient failures, and nothing
+ *                   was delivered to any of its recipients, so it can be resent whole
+ * @param recipients one entry per envelope address of every attempted request
+ */
+public record BatchResult(String server, boolean[] delivered, boolean[] retryable, List<RecipientResult> recipients) {
+
+    /**
+     * @param request   index of the request in the batch
+     * @param address   recipient address, bare and lower-cased (see RecipientMerger.normalize)
+     * @param delivered whether the server accepted the recipient and the message
+     */
+    public record RecipientResult(int request, String address, boolean delivered) {
+    }
+
+    /**
+     * Requests that reached some but not all of their recipients, with the addresses they did not reach.
+     * Such a request is neither delivered nor retryable: sending it again would duplicate it for the others.
+     */
+    public Map<Integer, List<String>> partial() {
+        Map<Integer, List<String>> undelivered = new HashMap<>();
+        Set<Integer> reached = new HashSet<>();
+        for (RecipientResult recipient : recipients) {
+            if (recipient.delivered()) {
+                reached.add(recipient.request());
+            } else {
+                undelivered.computeIfAbsent(recipient.request(), request -> new ArrayList<>()).add(recipient.address());
+            }
+        }
+        undelivered.keySet().retainAll(reached);
+        return undelivered;
+    }
+
+    public int deliveredCount() {
+        int count = 0;
+        for (boolean result : delivered) {
+            count += result ? 1 : 0;
+        }
+        return count;
+    }
+}
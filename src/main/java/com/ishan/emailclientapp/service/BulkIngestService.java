@@ -0,0 +1,131 @@
+package com.ishan.emailclientapp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.ishan.emailclientapp.config.MailProperties;
+import com.ishan.emailclientapp.model.EmailRequest;
+import com.ishan.emailclientapp.model.Priority;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams a bulk request body (NDJSON or a JSON array) into the outbox chunk by chunk.
+ * Only one outbox batch of requests is held in memory at a time, each chunk is admitted and
+ * committed on its own, and the dispatcher is woken so delivery starts while the body is still arriving.
+ */
+@Service
+public class BulkIngestService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkIngestService.class);
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private AdmissionService admissionService;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private MailProperties mailProperties;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Outcome of a streamed intake
+     *
+     * @param processed requests read and either queued or skipped as invalid; the client resumes after these
+     * @param queued    requests persisted to the outbox
+     * @param invalid   requests that failed validation
+     * @param rejection admission decision that stopped the stream, or null
+     * @param error     parse error that stopped the stream, or null
+     */
+    public record Result(int processed, int queued, int invalid, AdmissionService.Decision rejection, String error) {
+        public boolean complete() {
+            return rejection == null && error == null;
+        }
+    }
+
+    public Result ingest(InputStream body) throws IOException {
+        int chunkSize = mailProperties.getOutbox().getBatchSize();
+        ObjectReader reader = objectMapper.readerFor(EmailRequest.class);
+        List<EmailRequest> chunk = new ArrayList<>(chunkSize);
+        int read = 0;
+        int processed = 0;
+        int queued = 0;
+        int invalid = 0;
+        String error = null;
+
+        // readValues unwraps a top-level array and also accepts whitespace-separated values (NDJSON)
+        try (MappingIterator<EmailRequest> requests = reader.readValues(body)) {
+            while (requests.hasNextValue()) {
+                EmailRequest emailRequest = requests.nextValue();
+                read++;
+                if (!emailService.isValidRequest(emailRequest)) {
+                    invalid++;
+                    if (chunk.isEmpty()) {
+                        processed = read;
+                    }
+                    continue;
+                }
+                if (emailRequest.getPriority() == null) {
+                    emailRequest.setPriority(Priority.BULK);
+                }
+                chunk.add(emailRequest);
+                if (chunk.size() == chunkSize) {
+                    AdmissionService.Decision decision = flush(chunk);
+                    if (!decision.admitted()) {
+                        return new Result(processed, queued, invalid, decision, null);
+                    }
+                    queued += chunk.size();
+                    processed = read;
+                    chunk.clear();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            // Keep what parsed cleanly before the error
+            error = e.getOriginalMessage();
+            logger.warn("Malformed bulk stream after {} emails: {}", read, error);
+        }
+
+        if (!chunk.isEmpty()) {
+            AdmissionService.Decision decision = flush(chunk);
+            if (!decision.admitted()) {
+                return new Result(processed, queued, invalid, decision, error);
+            }
+            queued += chunk.size();
+            processed = read;
+        }
+        logger.info("Streamed bulk intake queued {} emails ({} invalid)", queued, invalid);
+        return new Result(processed, queued, invalid, null, error);
+    }
+
+    private AdmissionService.Decision flush(List<EmailRequest> chunk) throws JsonProcessingException {
+        AdmissionService.Decision decision = admissionService.tryAdmit(chunk.size());
+        if (!decision.admitted()) {
+            return decision;
+        }
+        try {
+            outboxService.enqueue(chunk);
+        } catch (RuntimeException | JsonProcessingException e) {
+            admissionService.cancel(chunk.size());
+            throw e;
+        }
+        outboxDispatcher.wakeUp();
+        return decision;
+    }
+}
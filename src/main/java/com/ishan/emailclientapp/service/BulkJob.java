@@ -0,0 +1,126 @@
+package com.ishan.emailclientapp.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Delivery state of one bulk submission: one status byte per position in the submitted list,
+ * plus running counts, so a 100k-message job costs about 100KB however it is polled.
+ * Positions that reached only some of their recipients also keep the addresses they did not reach.
+ */
+public class BulkJob {
+
+    public enum Status {
+        QUEUED,
+        SENT,
+        /** Reached some of its recipients; resending it whole would duplicate it for the others */
+        PARTIAL,
+        FAILED,
+        INVALID;
+
+        private static final Status[] VALUES = values();
+    }
+
+    /**
+     * Counts by status; done once nothing is queued
+     */
+    public record Progress(String jobId, int total, int queued, int sent, int partial, int failed, int invalid,
+                           boolean done) {
+    }
+
+    private final String id;
+    private final byte[] statuses;
+    private final int[] counts = new int[Status.VALUES.length];
+    private final Map<Integer, List<String>> undelivered = new HashMap<>();
+    private volatile long updatedAt = System.currentTimeMillis();
+    private volatile long version;
+
+    public BulkJob(String id, int total) {
+        this.id = id;
+        this.statuses = new byte[total];
+        counts[Status.QUEUED.ordinal()] = total;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Requests submitted, valid or not
+     */
+    public int getTotal() {
+        return statuses.length;
+    }
+
+    /**
+     * Record the status of a position; unknown positions are ignored
+     */
+    public synchronized void set(int position, Status status) {
+        if (position < 0 || position >= statuses.length || statuses[position] == status.ordinal()) {
+            return;
+        }
+        if (status != Status.PARTIAL) {
+            undelivered.remove(position);
+        }
+        counts[statuses[position]]--;
+        counts[status.ordinal()]++;
+        statuses[position] = (byte) status.ordinal();
+        version++;
+        updatedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Record a position that reached some of its recipients, and the addresses it did not reach
+     */
+    public synchronized void setPartial(int position, List<String> addresses) {
+        if (position < 0 || position >= statuses.length) {
+            return;
+        }
+        set(position, Status.PARTIAL);
+        undelivered.put(position, List.copyOf(addresses));
+    }
+
+    /**
+     * Addresses not reached by each PARTIAL position, by position
+     */
+    public synchronized Map<Integer, List<String>> undelivered() {
+        return new TreeMap<>(undelivered);
+    }
+
+    public synchronized Status get(int position) {
+        return Status.VALUES[statuses[position]];
+    }
+
+    public synchronized Progress progress() {
+        return new Progress(id, statuses.length, counts[Status.QUEUED.ordinal()], counts[Status.SENT.ordinal()],
+                counts[Status.PARTIAL.ordinal()], counts[Status.FAILED.ordinal()], counts[Status.INVALID.ordinal()],
+                counts[Status.QUEUED.ordinal()] == 0);
+    }
+
+    /**
+     * Positions with the given status, in order; FAILED and INVALID are what a client should resend or fix
+     */
+    public synchronized List<Integer> positions(Status status) {
+        List<Integer> positions = new ArrayList<>(counts[status.ordinal()]);
+        for (int i = 0; i < statuses.length; i++) {
+            if (statuses[i] == status.ordinal()) {
+                positions.add(i);
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Bumped on every change, so watchers can tell whether there is anything new to report
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+}
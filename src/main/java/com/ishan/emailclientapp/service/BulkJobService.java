@@ -0,0 +1,216 @@
+package com.ishan.emailclientapp.service;
+
+import com.ishan.emailclientapp.config.MailProperties;
+import com.ishan.emailclientapp.model.OutboxMessage;
+import com.ishan.emailclientapp.model.OutboxStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Bulk jobs accepted by this instance and their per-position delivery status.
+ * The outbox dispatcher reports each settled row; clients poll the progress or watch it as
+ * Server-Sent Events, and resend only the positions that failed.
+ * Jobs are kept in memory until retentionMillis after their last change; a job that is not in memory
+ * (e.g. after a restart) is rebuilt from its outbox rows.
+ */
+@Service
+public class BulkJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkJobService.class);
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private MailProperties mailProperties;
+
+    private final Map<String, BulkJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, List<Watcher>> watchers = new ConcurrentHashMap<>();
+
+    /**
+     * An SSE subscriber and the job version it last saw
+     */
+    private static final class Watcher {
+        final SseEmitter emitter;
+        long seenVersion = -1;
+
+        Watcher(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+
+    /**
+     * Start tracking a submission of total requests, of which the invalid positions were not queued
+     */
+    public BulkJob create(int total, Collection<Integer> invalidPositions) {
+        BulkJob job = new BulkJob(UUID.randomUUID().toString(), total);
+        for (int position : invalidPositions) {
+            job.set(position, BulkJob.Status.INVALID);
+        }
+        jobs.put(job.getId(), job);
+        return job;
+    }
+
+    /**
+     * Forget a job whose rows never made it into the outbox
+     */
+    public void discard(String jobId) {
+        jobs.remove(jobId);
+    }
+
+    /**
+     * Record the final status of an outbox row; rows outside any job, or of jobs not held here, are ignored
+     */
+    public void record(OutboxMessage message, BulkJob.Status status) {
+        if (message.getJobId() == null || message.getJobIndex() == null) {
+            return;
+        }
+        BulkJob job = jobs.get(message.getJobId());
+        if (job != null) {
+            job.set(message.getJobIndex(), status);
+        }
+    }
+
+    /**
+     * Record an outbox row that reached only some of its recipients, and the addresses it did not reach
+     */
+    public void recordPartial(OutboxMessage message, List<String> undelivered) {
+        if (message.getJobId() == null || message.getJobIndex() == null) {
+            return;
+        }
+        BulkJob job = jobs.get(message.getJobId());
+        if (job != null) {
+            job.setPartial(message.getJobIndex(), undelivered);
+        }
+    }
+
+    /**
+     * @return the job, or null if it is unknown here and has no outbox rows
+     */
+    public BulkJob find(String jobId) {
+        BulkJob job = jobs.get(jobId);
+        return job != null ? job : rebuild(jobId);
+    }
+
+    /**
+     * Stream the job's progress: a "progress" event whenever it changed, at most every progressIntervalMillis,
+     * and a final "complete" event once nothing is queued
+     *
+     * @return null if the job is unknown
+     */
+    public SseEmitter watch(String jobId) {
+        BulkJob job = find(jobId);
+        if (job == null) {
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(mailProperties.getJobs().getSseTimeoutMillis());
+        Watcher watcher = new Watcher(emitter);
+        watchers.compute(jobId, (id, jobWatchers) -> {
+            List<Watcher> list = jobWatchers != null ? jobWatchers : new CopyOnWriteArrayList<>();
+            list.add(watcher);
+            return list;
+        });
+        Runnable remove = () -> watchers.computeIfPresent(jobId, (id, jobWatchers) -> {
+            jobWatchers.remove(watcher);
+            return jobWatchers.isEmpty() ? null : jobWatchers;
+        });
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(error -> remove.run());
+        publish(job, watcher);
+        return emitter;
+    }
+
+    @Scheduled(fixedDelayString = "${spring.mail.jobs.progressIntervalMillis:500}")
+    public void publishProgress() {
+        watchers.forEach((jobId, jobWatchers) -> {
+            BulkJob job = jobs.get(jobId);
+            for (Watcher watcher : jobWatchers) {
+                if (job == null) {
+                    watcher.emitter.complete();
+                } else if (watcher.seenVersion != job.getVersion()) {
+                    publish(job, watcher);
+                }
+            }
+        });
+    }
+
+    /**
+     * Drop jobs that have not changed for retentionMillis and nobody is watching
+     */
+    @Scheduled(fixedDelay = 60000, initialDelay = 60000)
+    public void evictExpired() {
+        long cutoff = System.currentTimeMillis() - mailProperties.getJobs().getRetentionMillis();
+        int before = jobs.size();
+        jobs.values().removeIf(job -> job.getUpdatedAt() < cutoff
+                && watchers.getOrDefault(job.getId(), List.of()).isEmpty());
+        if (jobs.size() < before) {
+            logger.debug("Evicted {} expired bulk jobs", before - jobs.size());
+        }
+    }
+
+    private void publish(BulkJob job, Watcher watcher) {
+        long version = job.getVersion();
+        BulkJob.Progress progress = job.progress();
+        try {
+            watcher.emitter.send(SseEmitter.event().name(progress.done() ? "complete" : "progress").data(progress));
+            watcher.seenVersion = version;
+            if (progress.done()) {
+                watcher.emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Client went away; the emitter's callbacks remove the watcher
+            watcher.emitter.completeWithError(e);
+        }
+    }
+
+    /**
+     * Rebuild a job from its outbox rows; positions without a row were invalid at intake.
+     * Rows carry the submitted total, so trailing invalid positions are not lost; rows written
+     * before they did fall back to the highest position.
+     */
+    private BulkJob rebuild(String jobId) {
+        List<Object[]> rows = outboxService.findJobStatuses(jobId);
+        if (rows.isEmpty()) {
+            return null;
+        }
+        int total = 0;
+        for (Object[] row : rows) {
+            total = Math.max(total, row[2] != null ? (Integer) row[2] : (Integer) row[0] + 1);
+        }
+        BulkJob job = new BulkJob(jobId, total);
+        boolean[] queued = new boolean[total];
+        for (Object[] row : rows) {
+            int position = (Integer) row[0];
+            queued[position] = true;
+            OutboxStatus status = (OutboxStatus) row[1];
+            if (status == OutboxStatus.SENT && row[3] != null) {
+                job.setPartial(position, List.of(((String) row[3]).split(",")));
+            } else if (status == OutboxStatus.SENT) {
+                job.set(position, BulkJob.Status.SENT);
+            } else if (status == OutboxStatus.FAILED) {
+                job.set(position, BulkJob.Status.FAILED);
+            }
+        }
+        for (int i = 0; i < total; i++) {
+            if (!queued[i]) {
+                job.set(i, BulkJob.Status.INVALID);
+            }
+        }
+        BulkJob existing = jobs.putIfAbsent(jobId, job);
+        logger.info("Rebuilt bulk job {} from {} outbox rows", jobId, rows.size());
+        return existing != null ? existing : job;
+    }
+}
@@ -1,6 +1,8 @@
 package com.ishan.emailclientapp.service;
 
-import org.apache.commons.pool2.ObjectPool;
+import com.ishan.emailclientapp.config.MailProperties.SmtpServer;
+import com.ishan.emailclientapp.config.SmtpConnectionPoolFactory;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,7 +19,16 @@ public class ConnectionPoolHealthMonitor {
     private static final Logger logger = LoggerFactory.getLogger(ConnectionPoolHealthMonitor.class);
 
     @Autowired
-    private ObjectPool<Transport> smtpConnectionPool;
+    private GenericKeyedObjectPool<String, Transport> smtpConnectionPool;
+
+    @Autowired
+    private SmtpConnectionPoolFactory smtpConnectionPoolFactory;
+
+    @Autowired
+    private ServerConcurrencyLimiter concurrencyLimiter;
+
+    @Autowired
+    private SmtpServerRouter serverRouter;
 
     /**
      * Monitor connection pool health every 30 seconds
@@ -62,11 +73,33 @@ public class ConnectionPoolHealthMonitor {
             stats.put("numActive", smtpConnectionPool.getNumActive());
             stats.put("numIdle", smtpConnectionPool.getNumIdle());
             stats.put("numTotal", smtpConnectionPool.getNumActive() + smtpConnectionPool.getNumIdle());
+            stats.put("numWaiters", smtpConnectionPool.getNumWaiters());
+            
+            // Live configuration, as the pool actually runs it
+            stats.put("maxTotal", smtpConnectionPool.getMaxTotal());
+            stats.put("maxTotalPerServer", smtpConnectionPool.getMaxTotalPerKey());
+            stats.put("maxIdle", smtpConnectionPool.getMaxIdlePerKey());
+            stats.put("minIdle", smtpConnectionPool.getMinIdlePerKey());
             
-            // Set default values for methods not available on ObjectPool interface
-            stats.put("maxTotal", 20); // Default from MailProperties
-            stats.put("maxIdle", 10);  // Default from MailProperties
-            stats.put("minIdle", 5);   // Default from MailProperties
+            // Lifetime counters
+            stats.put("createdCount", smtpConnectionPool.getCreatedCount());
+            stats.put("destroyedCount", smtpConnectionPool.getDestroyedCount());
+            stats.put("borrowedCount", smtpConnectionPool.getBorrowedCount());
+            stats.put("returnedCount", smtpConnectionPool.getReturnedCount());
+            stats.put("meanBorrowWaitMillis", smtpConnectionPool.getMeanBorrowWaitDuration().toMillis());
+            stats.put("maxBorrowWaitMillis", smtpConnectionPool.getMaxBorrowWaitDuration().toMillis());
+            
+            Map<String, Object> servers = new HashMap<>();
+            for (SmtpServer server : smtpConnectionPoolFactory.getServers()) {
+                String name = server.getName();
+                Map<String, Object> serverStats = new HashMap<>();
+                serverStats.put("numActive", smtpConnectionPool.getNumActive(name));
+                serverStats.put("numIdle", smtpConnectionPool.getNumIdle(name));
+                serverStats.put("inFlight", concurrencyLimiter.inFlight(name));
+                serverStats.put("concurrencyLimit", concurrencyLimiter.getLimit(name));
+                servers.put(name, serverStats);
+            }
+            stats.put("servers", servers);
             
         } catch (Exception e) {
             logger.error("Error getting pool statistics", e);
@@ -80,11 +113,12 @@ public class ConnectionPoolHealthMonitor {
      * Test pool connectivity by borrowing and returning a connection
      */
     public boolean testPoolConnectivity() {
+        String server = serverRouter.selectServer();
         Transport transport = null;
         try {
-            transport = smtpConnectionPool.borrowObject();
+            transport = smtpConnectionPool.borrowObject(server);
             boolean isConnected = transport.isConnected();
-            logger.info("Pool connectivity test: {}", isConnected ? "SUCCESS" : "FAILED");
+            logger.info("Pool connectivity test against {}: {}", server, isConnected ? "SUCCESS" : "FAILED");
             return isConnected;
         } catch (Exception e) {
             logger.error("Pool connectivity test failed", e);
@@ -92,7 +126,7 @@ public class ConnectionPoolHealthMonitor {
         } finally {
             if (transport != null) {
                 try {
-                    smtpConnectionPool.returnObject(transport);
+                    smtpConnectionPool.returnObject(server, transport);
                 } catch (Exception e) {
                     logger.warn("Failed to return test transport to pool", e);
                 }
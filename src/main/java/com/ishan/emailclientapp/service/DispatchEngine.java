@@ -0,0 +1,102 @@
+package com.ishan.emailclientapp.service;
+
+import com.ishan.emailclientapp.config.MailProperties;
+import com.ishan.emailclientapp.model.Priority;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs send tasks on virtual threads. A semaphore sized to the pool's total capacity
+ * bounds how many run at once; the rest park cheaply instead of queueing behind a fixed thread pool.
+ * Parked tasks wait in their priority lane, so queued bulk work does not delay transactional sends.
+ */
+@Service
+public class DispatchEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(DispatchEngine.class);
+
+    @Autowired
+    private ServerConcurrencyLimiter concurrencyLimiter;
+
+    @Autowired
+    private MailProperties mailProperties;
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("email-dispatch-", 0).factory());
+    private PrioritySemaphore permits;
+
+    @PostConstruct
+    public void init() {
+        MailProperties.Lanes lanes = mailProperties.getLanes();
+        permits = new PrioritySemaphore(concurrencyLimiter.totalCapacity(), new WeightedLanes(lanes),
+                lanes.getReservedShare());
+        logger.info("Dispatch engine started with concurrency limit {}", permits.getLimit());
+    }
+
+    /**
+     * Run the task on a virtual thread once a slot is free
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        return submit(Priority.NORMAL, task);
+    }
+
+    /**
+     * Run the task on a virtual thread once a slot is free for its lane
+     */
+    public <T> CompletableFuture<T> submit(Priority lane, Supplier<T> task) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                permits.acquire(lane);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+            try {
+                return task.get();
+            } finally {
+                permits.release();
+            }
+        }, executor);
+    }
+
+    @Scheduled(fixedDelay = 5000)
+    public void syncWithPool() {
+        int capacity = concurrencyLimiter.totalCapacity();
+        if (capacity != permits.getLimit()) {
+            logger.info("Resizing dispatch concurrency from {} to {}", permits.getLimit(), capacity);
+            permits.setLimit(capacity);
+        }
+    }
+
+    public int getActiveCount() {
+        return permits.inUse();
+    }
+
+    public int getQueuedCount() {
+        return permits.getQueueLength();
+    }
+
+    public int getConcurrencyLimit() {
+        return permits.getLimit();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+}
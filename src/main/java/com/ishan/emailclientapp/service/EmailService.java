@@ -1,7 +1,18 @@
 package com.ishan.emailclientapp.service;
 
+import com.ishan.emailclientapp.config.MailProperties;
+import com.ishan.emailclientapp.config.PooledSmtpTransport;
+import com.ishan.emailclientapp.config.SmtpConnectionPoolFactory;
+import com.ishan.emailclientapp.dtos.AttachmentDTO;
+import com.ishan.emailclientapp.jfr.BorrowEvent;
+import com.ishan.emailclientapp.jfr.SendEvent;
 import com.ishan.emailclientapp.model.EmailRequest;
-import org.apache.commons.pool2.ObjectPool;
+import com.ishan.emailclientapp.model.Priority;
+import com.ishan.emailclientapp.service.BatchResult.RecipientResult;
+import com.ishan.emailclientapp.service.RecipientMerger.Envelope;
+import org.apache.commons.pool2.KeyedObjectPool;
+import org.eclipse.angus.mail.smtp.SMTPMessage;
+import org.eclipse.angus.mail.smtp.SMTPTransport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,15 +21,19 @@ import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
-import jakarta.mail.Message;
-import jakarta.mail.Session;
+import jakarta.mail.Address;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
 import jakarta.mail.Transport;
 import jakarta.mail.internet.InternetAddress;
-import jakarta.mail.internet.MimeMessage;
-import java.util.Properties;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class EmailService {
@@ -29,75 +44,138 @@ public class EmailService {
     private JavaMailSender mailSender; // Kept for backward compatibility
     
     @Autowired
-    private ObjectPool<Transport> smtpConnectionPool;
+    private KeyedObjectPool<String, Transport> smtpConnectionPool;
     
     @Autowired
-    private com.ishan.emailclientapp.config.MailProperties mailProperties;
+    private SmtpConnectionPoolFactory smtpConnectionPoolFactory;
     
-    private final ExecutorService emailExecutor = Executors.newFixedThreadPool(10);
+    @Autowired
+    private MimeMessageBuilder messageBuilder;
+    
+    @Autowired
+    private AttachmentStore attachmentStore;
+    
+    @Autowired
+    private SmtpServerRouter serverRouter;
+    
+    @Autowired
+    private ServerConcurrencyLimiter concurrencyLimiter;
+    
+    @Autowired
+    private DispatchEngine dispatchEngine;
+    
+    @Autowired
+    private SmtpMetrics smtpMetrics;
+    
+    @Autowired
+    private AdaptiveConcurrencyController adaptiveController;
+    
+    @Autowired
+    private ServerHealthTracker healthTracker;
+    
+    @Autowired
+    private PoolWarmer poolWarmer;
+    
+    @Autowired
+    private RecipientMerger recipientMerger;
+    
+    @Autowired
+    private ServerRateLimiter rateLimiter;
+    
+    @Autowired
+    private MailProperties mailProperties;
 
+    /**
+     * Outcome of one attempt at a single message
+     *
+     * @param server    the server it went through
+     * @param retryable whether a failure was transient, so a later attempt may succeed
+     */
+    public record SendAttempt(String server, boolean sent, boolean retryable) {
+    }
+    
     /**
      * Send email using the pooled SMTP connections for better performance
      */
     public boolean sendEmail(EmailRequest emailRequest) {
-        // Check if emailRequest is null
-        if (emailRequest == null) {
-            logger.error("Email request is null.");
-            return false;
-        }
-
-        // Validate fields in emailRequest
-        if (emailRequest.getFrom() == null || emailRequest.getFrom().isEmpty() ||
-                emailRequest.getTo() == null || emailRequest.getTo().isEmpty() ||
-                emailRequest.getSubject() == null || emailRequest.getSubject().isEmpty() ||
-                emailRequest.getBody() == null || emailRequest.getBody().isEmpty()) {
-            logger.error("Invalid email request parameters.");
-            return false;
+        return attemptSend(emailRequest, null).sent();
+    }
+    
+    /**
+     * One attempt at sending a message, through any server but the avoided one if another is available
+     */
+    public SendAttempt attemptSend(EmailRequest emailRequest, String avoidServer) {
+        if (!isValidRequest(emailRequest)) {
+            return new SendAttempt(null, false, false);
         }
 
+        String server = serverRouter.selectServer(avoidServer);
+        int recipients = RecipientMerger.addresses(emailRequest).size();
         Transport transport = null;
+        boolean permitted = false;
+        // Quota reserved for a message that has not reached the server yet
+        int unspent = 0;
         try {
-            // Borrow connection from pool
-            transport = smtpConnectionPool.borrowObject();
+            permitted = acquirePermit(server, Priority.of(emailRequest));
+            if (!permitted) {
+                return new SendAttempt(server, false, true);
+            }
+            if (!pace(server, recipients)) {
+                return new SendAttempt(server, false, true);
+            }
+            unspent = recipients;
+            
+            // Borrow connection from the selected server's sub-pool
+            transport = borrowTransport(server);
             
             // Create and send message using pooled connection
-            boolean success = sendEmailWithTransport(transport, emailRequest);
+            unspent = 0;
+            SendOutcome outcome = sendEmailWithTransport(server, transport, emailRequest, false, null);
+            if (outcome == SendOutcome.CONNECTION_LOST) {
+                logger.warn("Connection to {} broke mid-send, retrying on a fresh connection", server);
+                invalidateTransport(server, transport);
+                transport = null;
+                transport = borrowTransport(server);
+                outcome = sendEmailWithTransport(server, transport, emailRequest, false, null);
+                if (outcome == SendOutcome.CONNECTION_LOST) {
+                    invalidateTransport(server, transport);
+                    transport = null;
+                }
+            }
+            boolean success = outcome == SendOutcome.SENT;
             
             if (success) {
-                logger.info("Email sent successfully to {} using pooled connection", emailRequest.getTo());
+                logger.info("Email sent successfully to {} using pooled connection to {}", emailRequest.getTo(), server);
             }
             
-            return success;
+            return new SendAttempt(server, success, outcome.isTransient());
             
         } catch (Exception e) {
-            logger.error("Failed to send email using pooled connection", e);
-            return false;
+            // Borrow failures: pool exhausted, connect or AUTH failure
+            logger.error("Failed to send email using pooled connection to {}", server, e);
+            return new SendAttempt(server, false, true);
         } finally {
+            if (unspent > 0) {
+                rateLimiter.refund(server, unspent);
+            }
             // Always return connection to pool
-            if (transport != null) {
-                try {
-                    smtpConnectionPool.returnObject(transport);
-                } catch (Exception e) {
-                    logger.warn("Failed to return transport to pool", e);
-                    try {
-                        smtpConnectionPool.invalidateObject(transport);
-                    } catch (Exception invalidateEx) {
-                        logger.error("Failed to invalidate transport", invalidateEx);
-                    }
-                }
+            releaseTransport(server, transport);
+            if (permitted) {
+                concurrencyLimiter.release(server);
             }
         }
     }
     
     /**
-     * Send email asynchronously using pooled connections
+     * One attempt on the dispatch engine, through any server but the avoided one if another is available
      */
-    public CompletableFuture<Boolean> sendEmailAsync(EmailRequest emailRequest) {
-        return CompletableFuture.supplyAsync(() -> sendEmail(emailRequest), emailExecutor);
+    public CompletableFuture<SendAttempt> submitAttempt(EmailRequest emailRequest, String avoidServer) {
+        return dispatchEngine.submit(Priority.of(emailRequest), () -> attemptSend(emailRequest, avoidServer));
     }
     
     /**
-     * Send multiple emails using pooled connections
+     * Send multiple emails using pooled connections, blocking until every batch is done.
+     * For in-process callers; /send-bulk queues a job through the outbox instead (see BulkJobService).
      */
     public boolean sendBulkEmails(java.util.List<EmailRequest> emailRequests) {
         if (emailRequests == null || emailRequests.isEmpty()) {
@@ -107,21 +185,25 @@ public class EmailService {
         
         logger.info("Starting bulk email send for {} emails", emailRequests.size());
         
-        // Process emails in parallel using the connection pool
-        java.util.List<CompletableFuture<Boolean>> futures = emailRequests.stream()
-                .map(this::sendEmailAsync)
-                .toList();
+        // Split into batches; each worker streams its batch over a single borrowed connection
+        int batchSize = bulkBatchSize(emailRequests.size());
+        java.util.List<CompletableFuture<BatchResult>> futures = new java.util.ArrayList<>();
+        for (int start = 0; start < emailRequests.size(); start += batchSize) {
+            java.util.List<EmailRequest> batch =
+                    emailRequests.subList(start, Math.min(start + batchSize, emailRequests.size()));
+            futures.add(dispatchEngine.submit(lane(batch), () -> sendBatch(batch)));
+        }
         
-        // Wait for all emails to complete
+        // Wait for all batches to complete
         CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
         
         // Count successful sends
         long successCount = futures.stream()
                 .mapToLong(future -> {
                     try {
-                        return future.get() ? 1 : 0;
+                        return future.get().deliveredCount();
                     } catch (Exception e) {
-                        logger.error("Error getting future result", e);
+                        logger.error("Error getting batch result", e);
                         return 0;
                     }
                 })
@@ -132,34 +214,436 @@ public class EmailService {
     }
     
     /**
-     * Send email using a specific Transport connection
+     * Send a batch of emails over one borrowed connection with successive sendMessage calls,
+     * so the batch pays a single borrow/validate/return instead of one per message.
+     * Requests with identical content are merged into multi-recipient envelopes first (see RecipientMerger).
+     * A connection that breaks mid-batch is invalidated and the message retried on a fresh one;
+     * a connection that reaches its message or lifetime limit is rotated in the background.
+     *
+     * @return per-message and per-recipient outcome, in batch order
      */
-    private boolean sendEmailWithTransport(Transport transport, EmailRequest emailRequest) {
+    public BatchResult sendBatch(java.util.List<EmailRequest> batch) {
+        String server = serverRouter.selectServer();
+        Transport transport = null;
+        boolean[] results = new boolean[batch.size()];
+        // Undelivered until proven otherwise: anything not attempted can be tried again
+        boolean[] retryable = new boolean[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            retryable[i] = isValidRequest(batch.get(i));
+        }
+        List<RecipientResult> recipients = new ArrayList<>();
+        int envelopes = 0;
+        boolean permitted = false;
+        // Quota reserved for the current envelope while it has not reached the server
+        int unspent = 0;
         try {
-            // Create a new session for this message
-            Properties props = new Properties();
-            props.put("mail.smtp.auth", "true");
-            props.put("mail.smtp.starttls.enable", "true");
-            
-            Session session = Session.getInstance(props, null);
-            MimeMessage message = new MimeMessage(session);
+            permitted = acquirePermit(server, lane(batch));
+            if (!permitted) {
+                return new BatchResult(server, results, retryable, recipients);
+            }
             
-            message.setFrom(new InternetAddress(emailRequest.getFrom()));
-            for (String to : emailRequest.getTo()) {
-                message.addRecipient(Message.RecipientType.TO, new InternetAddress(to));
+            for (Envelope envelope : envelopes(server, batch)) {
+                int envelopeRecipients = RecipientMerger.addresses(envelope.request()).size();
+                if (!pace(server, envelopeRecipients)) {
+                    // Quota exhausted: leave the rest of the batch failed so it is retried later
+                    break;
+                }
+                unspent = envelopeRecipients;
+                if (transport == null) {
+                    transport = borrowTransport(server);
+                    if (transport instanceof SMTPTransport smtpTransport && smtpTransport.supportsExtension("PIPELINING")) {
+                        // Angus does not pipeline MAIL/RCPT/DATA itself; reuse is what saves the round trips
+                        logger.debug("Server {} advertises PIPELINING", server);
+                    }
+                }
+                Recipients outcomes = new Recipients();
+                unspent = 0;
+                SendOutcome outcome = sendEmailWithTransport(server, transport, envelope.request(), envelope.merged(), outcomes);
+                if (outcome == SendOutcome.CONNECTION_LOST) {
+                    logger.warn("Connection to {} broke mid-batch, retrying on a fresh connection", server);
+                    invalidateTransport(server, transport);
+                    transport = null;
+                    transport = borrowTransport(server);
+                    outcome = sendEmailWithTransport(server, transport, envelope.request(), envelope.merged(), outcomes);
+                }
+                envelopes++;
+                for (int index : envelope.members()) {
+                    results[index] = settle(index, batch.get(index), outcomes, recipients);
+                    retryable[index] = !results[index] && (outcome.isTransient() || outcomes.deferredAll(batch.get(index)));
+                }
+                if (outcome == SendOutcome.CONNECTION_LOST) {
+                    invalidateTransport(server, transport);
+                    transport = null;
+                } else if (smtpConnectionPoolFactory.isExpired(server, transport)) {
+                    // Rotate before the provider cuts the session; the next message borrows a fresh connection
+                    poolWarmer.replace(server, transport);
+                    transport = null;
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Failed to send batch using pooled connection to {}", server, e);
+        } finally {
+            if (unspent > 0) {
+                rateLimiter.refund(server, unspent);
+            }
+            releaseTransport(server, transport);
+            if (permitted) {
+                concurrencyLimiter.release(server);
+            }
+        }
+        
+        BatchResult result = new BatchResult(server, results, retryable, recipients);
+        logger.debug("Batch of {} emails sent over {} in {} envelopes: {} succeeded",
+                batch.size(), server, envelopes, result.deliveredCount());
+        return result;
+    }
+    
+    /**
+     * Valid requests of a batch as envelopes, merged up to the server's recipient cap when enabled;
+     * envelope members index into the batch
+     */
+    private List<Envelope> envelopes(String server, List<EmailRequest> batch) {
+        List<Integer> valid = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            if (isValidRequest(batch.get(i))) {
+                valid.add(i);
+            }
+        }
+        List<Envelope> envelopes = new ArrayList<>(valid.size());
+        if (!mailProperties.getMime().isMergeRecipients()) {
+            for (int index : valid) {
+                envelopes.add(new Envelope(batch.get(index), List.of(index)));
+            }
+            return envelopes;
+        }
+        // Providers count recipients against the daily quota, so an envelope never needs more than it can hold
+        int maxRecipients = Math.max(1, Math.min(smtpConnectionPoolFactory.getServer(server).getMaxRecipientsPerMessage(),
+                rateLimiter.maxRecipientsAtOnce(server)));
+        for (Envelope envelope : recipientMerger.merge(valid.stream().map(batch::get).toList(), maxRecipients)) {
+            envelopes.add(new Envelope(envelope.request(), envelope.members().stream().map(valid::get).toList()));
+        }
+        return envelopes;
+    }
+    
+    /**
+     * Record the per-recipient outcome of one request; it counts as delivered only if every recipient was accepted
+     */
+    private boolean settle(int index, EmailRequest request, Recipients outcomes, List<RecipientResult> recipients) {
+        boolean delivered = true;
+        for (String address : RecipientMerger.addresses(request)) {
+            boolean ok = outcomes.accepted.contains(address);
+            recipients.add(new RecipientResult(index, address, ok));
+            delivered &= ok;
+            if (!ok) {
+                logger.debug("Recipient {} of batch message {} was not delivered", address, index);
+            }
+        }
+        return delivered;
+    }
+    
+    /**
+     * Batch size for a bulk send: the configured size, shrunk for small lists
+     * so the work still spreads across the pool's connections
+     */
+    private int bulkBatchSize(int totalEmails) {
+        MailProperties.Pool pool = mailProperties.getPool();
+        int perConnection = (totalEmails + pool.getMaxTotal() - 1) / Math.max(pool.getMaxTotal(), 1);
+        return Math.max(1, Math.min(pool.getBulkBatchSize(), perConnection));
+    }
+    
+    /**
+     * Reserve a message to the given number of recipients against the server's rate limits and wait out the reservation.
+     * Callers pace after taking their connection slot, and refund the reservation if the message never reaches the server.
+     *
+     * @return false if the quota will not free up within the pool's maxWaitMillis
+     */
+    private boolean pace(String server, int recipients) throws InterruptedException {
+        long wait = rateLimiter.reserve(server, recipients,
+                TimeUnit.MILLISECONDS.toNanos(mailProperties.getPool().getMaxWaitMillis()));
+        if (wait < 0) {
+            logger.warn("Rate limit of {} exhausted, not sending", server);
+            return false;
+        }
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                rateLimiter.refund(server, recipients);
+                throw e;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Lane of a batch: its most urgent request, so a mixed batch never waits longer than its members would
+     */
+    private static Priority lane(List<EmailRequest> batch) {
+        Priority lane = Priority.BULK;
+        for (EmailRequest request : batch) {
+            if (Priority.of(request).compareTo(lane) < 0) {
+                lane = Priority.of(request);
+            }
+        }
+        return lane;
+    }
+    
+    /**
+     * Wait for a free connection slot on the server in the given lane, up to the pool's maxWaitMillis
+     */
+    private boolean acquirePermit(String server, Priority lane) throws InterruptedException {
+        long start = System.nanoTime();
+        boolean acquired = concurrencyLimiter.acquire(server, lane, mailProperties.getPool().getMaxWaitMillis());
+        smtpMetrics.recordLaneWait(lane, System.nanoTime() - start);
+        if (acquired) {
+            return true;
+        }
+        logger.error("Timed out waiting for a connection slot on {}", server);
+        return false;
+    }
+    
+    public boolean isValidRequest(EmailRequest emailRequest) {
+        // Check if emailRequest is null
+        if (emailRequest == null) {
+            logger.error("Email request is null.");
+            return false;
+        }
+
+        // Validate fields in emailRequest
+        if (emailRequest.getFrom() == null || emailRequest.getFrom().isEmpty() ||
+                emailRequest.getTo() == null || emailRequest.getTo().isEmpty() ||
+                emailRequest.getSubject() == null || emailRequest.getSubject().isEmpty() ||
+                emailRequest.getBody() == null || emailRequest.getBody().isEmpty()) {
+            logger.error("Invalid email request parameters.");
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Return the connection to the pool, or retire it in the background if it reached its message or lifetime limit
+     */
+    private void releaseTransport(String server, Transport transport) {
+        if (transport == null) {
+            return;
+        }
+        if (smtpConnectionPoolFactory.isExpired(server, transport)) {
+            poolWarmer.replace(server, transport);
+            return;
+        }
+        try {
+            smtpConnectionPool.returnObject(server, transport);
+        } catch (Exception e) {
+            logger.warn("Failed to return transport to pool", e);
+            invalidateTransport(server, transport);
+        }
+    }
+    
+    private void invalidateTransport(String server, Transport transport) {
+        try {
+            smtpConnectionPool.invalidateObject(server, transport);
+        } catch (Exception e) {
+            logger.error("Failed to invalidate transport", e);
+        }
+    }
+    
+    /**
+     * Outcome of one send over a borrowed connection: FAILED is transient (4xx, no reply), REJECTED permanent (5xx)
+     */
+    private enum SendOutcome {
+        SENT, PARTIAL, FAILED, REJECTED, CONNECTION_LOST;
+        
+        boolean isTransient() {
+            return this == FAILED || this == CONNECTION_LOST;
+        }
+    }
+    
+    /**
+     * Normalized envelope addresses the server accepted, and those it refused with a 4xx during a partial send
+     */
+    private static final class Recipients {
+        final Set<String> accepted = new HashSet<>();
+        final Set<String> deferred = new HashSet<>();
+        
+        /**
+         * True if nothing reached the request's recipients and every refusal was transient, so it can be resent whole
+         */
+        boolean deferredAll(EmailRequest request) {
+            return deferred.containsAll(RecipientMerger.addresses(request));
+        }
+    }
+    
+    /**
+     * Send email using a specific Transport connection
+     *
+     * @param partial  let the message go to the accepted recipients when some RCPT TO are rejected,
+     *                 as a merged envelope must not fail for one bad address
+     * @param outcomes if not null, collects the normalized addresses the server accepted or deferred
+     */
+    private SendOutcome sendEmailWithTransport(String server, Transport transport, EmailRequest emailRequest,
+                                               boolean partial, Recipients outcomes) {
+        try {
+            OutboundMessage outbound = buildMessage(server, emailRequest);
+            if (outbound.message() instanceof SMTPMessage smtpMessage) {
+                smtpMessage.setSendPartial(partial);
             }
-            message.setSubject(emailRequest.getSubject());
-            message.setText(emailRequest.getBody());
             
             // Send using the pooled transport
-            transport.sendMessage(message, message.getAllRecipients());
+            long size = estimateSize(emailRequest);
+            int recipients = outbound.recipients().length;
+            smtpMetrics.recordMessageSize(size);
+            smtpMetrics.recordEnvelope(recipients);
+            SendEvent event = new SendEvent();
+            event.begin();
+            long start = System.nanoTime();
+            try {
+                transport.sendMessage(outbound.message(), outbound.recipients());
+            } catch (Exception e) {
+                long nanos = System.nanoTime() - start;
+                if (partial && e instanceof SendFailedException failed && hasAddresses(failed.getValidSentAddresses())) {
+                    // DATA went through; only some RCPT TO were rejected
+                    event.commit(server, "partial", size, recipients);
+                    smtpMetrics.recordSend(server, nanos, "2xx");
+                    adaptiveController.recordSend(server, nanos, 250);
+                    healthTracker.recordSuccess(server, nanos);
+                    if (outcomes != null) {
+                        collect(failed.getValidSentAddresses(), outcomes.accepted);
+                        collect(failed.getValidUnsentAddresses(), outcomes.deferred);
+                    }
+                    logger.warn("Message via {} rejected for {} of {} recipients", server,
+                            recipients - failed.getValidSentAddresses().length, recipients);
+                    return SendOutcome.PARTIAL;
+                }
+                event.commit(server, SmtpReplies.replyClass(e), size, recipients);
+                smtpMetrics.recordSend(server, nanos, SmtpReplies.replyClass(e));
+                adaptiveController.recordSend(server, nanos, SmtpReplies.replyCode(e));
+                recordOutcome(server, nanos, e);
+                if (SmtpReplies.isConnectionLost(e, () -> isConnected(transport))) {
+                    logger.warn("Connection to {} lost while sending: {}", server, e.getMessage());
+                    return SendOutcome.CONNECTION_LOST;
+                }
+                boolean transientFailure = SmtpReplies.isTransient(e);
+                logger.error("Failed to send email with transport ({})", transientFailure ? "transient" : "permanent", e);
+                return transientFailure ? SendOutcome.FAILED : SendOutcome.REJECTED;
+            }
+            long nanos = System.nanoTime() - start;
+            event.commit(server, "2xx", size, recipients);
+            smtpMetrics.recordSend(server, nanos, "2xx");
+            adaptiveController.recordSend(server, nanos, 250);
+            healthTracker.recordSuccess(server, nanos);
+            if (outcomes != null) {
+                collect(outbound.recipients(), outcomes.accepted);
+            }
             
-            return true;
+            return SendOutcome.SENT;
             
         } catch (Exception e) {
-            logger.error("Failed to send email with transport", e);
+            // The message could not be built: retrying will not help
+            logger.error("Failed to build email for {}", server, e);
+            return SendOutcome.REJECTED;
+        }
+    }
+    
+    /**
+     * Whether a transport whose send just failed is still usable; a pooled one knows without I/O
+     * that Angus closed it, any other one is asked with a NOOP
+     */
+    private static boolean isConnected(Transport transport) {
+        if (transport instanceof PooledSmtpTransport pooled && !pooled.isOpen()) {
             return false;
         }
+        return transport.isConnected();
+    }
+    
+    private static boolean hasAddresses(Address[] addresses) {
+        return addresses != null && addresses.length > 0;
+    }
+    
+    private static void collect(Address[] addresses, Set<String> target) {
+        if (addresses == null) {
+            return;
+        }
+        for (Address address : addresses) {
+            target.add(address instanceof InternetAddress internet
+                    ? internet.getAddress().toLowerCase(Locale.ROOT)
+                    : RecipientMerger.normalize(address.toString()));
+        }
+    }
+    
+    /**
+     * Feed a failed send to the health tracker: 4xx and dropped connections count against the server,
+     * while a 5xx is a definitive answer from a working server
+     */
+    private void recordOutcome(String server, long nanos, Exception e) {
+        int code = SmtpReplies.replyCode(e);
+        if (code >= 500) {
+            healthTracker.recordSuccess(server, nanos);
+        } else if (code >= 400 || SmtpReplies.isConnectionFailure(e)) {
+            healthTracker.recordFailure(server, nanos);
+        }
+    }
+    
+    /**
+     * Build the MIME message for a request against the shared Session of the server it goes through
+     */
+    OutboundMessage buildMessage(String server, EmailRequest emailRequest) throws MessagingException {
+        return messageBuilder.build(smtpConnectionPoolFactory.getSession(server), emailRequest);
+    }
+    
+    private Transport borrowTransport(String server) throws Exception {
+        BorrowEvent event = new BorrowEvent();
+        event.begin();
+        long start = System.nanoTime();
+        String outcome = "success";
+        try {
+            return smtpConnectionPool.borrowObject(server);
+        } catch (NoSuchElementException e) {
+            // An exhausted pool says nothing about the server; failing to activate or validate does
+            if (e.getCause() != null || !isExhausted(server)) {
+                healthTracker.recordFailure(server, 0);
+                outcome = "failure";
+            } else {
+                outcome = "exhausted";
+            }
+            throw e;
+        } catch (Exception e) {
+            // Connect, greeting or AUTH failure while creating a connection
+            healthTracker.recordFailure(server, 0);
+            outcome = "failure";
+            throw e;
+        } finally {
+            event.commit(server, outcome);
+            long nanos = System.nanoTime() - start;
+            smtpMetrics.recordBorrowWait(server, nanos);
+            adaptiveController.recordBorrowWait(server, nanos);
+        }
+    }
+    
+    /**
+     * Whether every connection the server may have is out, so a failed borrow timed out waiting rather than
+     * failing to activate or validate a connection (those carry the failure as their cause, or leave room)
+     */
+    private boolean isExhausted(String server) {
+        MailProperties.Pool pool = mailProperties.getPool();
+        return smtpConnectionPool.getNumActive(server) >= pool.getMaxConnectionsPerServer()
+                || (pool.getMaxTotal() > 0 && smtpConnectionPool.getNumActive() >= pool.getMaxTotal());
+    }
+    
+    /**
+     * Approximate payload size (subject, body and attachments) without rendering the MIME message
+     */
+    private long estimateSize(EmailRequest emailRequest) {
+        long size = emailRequest.getSubject().length() + emailRequest.getBody().length();
+        if (emailRequest.getAttachments() != null) {
+            for (AttachmentDTO attachment : emailRequest.getAttachments()) {
+                if (attachment.getContent() != null) {
+                    size += attachment.getContent().length;
+                } else if (attachment.getContentHash() != null) {
+                    size += attachmentStore.size(attachment.getContentHash());
+                }
+            }
+        }
+        return size;
     }
     
     /**
@@ -199,7 +683,7 @@ public class EmailService {
     /**
      * Get mail properties for debugging
      */
-    public com.ishan.emailclientapp.config.MailProperties getMailProperties() {
+    public MailProperties getMailProperties() {
         return mailProperties;
     }
 }
@@ -0,0 +1,7 @@
+package com.ishan.emailclientapp.service;
+
+/**
+ * A text body already converted to bytes and transfer-encoded, shared read-only between messages
+ */
+record EncodedBody(String contentType, String transferEncoding, byte[] bytes) {
+}
@@ -0,0 +1,133 @@
+package com.ishan.emailclientapp.service;
+
+import com.ishan.emailclientapp.config.MailProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeUtility;
+import jakarta.mail.util.ByteArrayDataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU cache of transfer-encoded message bodies, keyed by content and capped in bytes.
+ * Bulk campaigns share one body across thousands of messages; charset conversion, encoding
+ * detection and quoted-printable/base64 encoding then happen once per body instead of once per message.
+ */
+@Component
+public class EncodedBodyCache {
+
+    private static final String CHARSET = StandardCharsets.UTF_8.name();
+
+    @Autowired
+    private MailProperties mailProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private record Key(String subtype, String body) {
+    }
+
+    private final LinkedHashMap<Key, EncodedBody> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private long cachedBytes;
+
+    @PostConstruct
+    public void registerMetrics() {
+        FunctionCounter.builder("smtp.mime.body.cache", hits, AtomicLong::get)
+                .description("Encoded body cache lookups").tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("smtp.mime.body.cache", misses, AtomicLong::get)
+                .description("Encoded body cache lookups").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("smtp.mime.body.cache.size", this, EncodedBodyCache::getCachedBytes)
+                .description("Bytes held by the encoded body cache").baseUnit("bytes").register(meterRegistry);
+    }
+
+    /**
+     * The encoded form of a text body, from the cache or freshly encoded
+     *
+     * @param subtype "plain" or "html"
+     */
+    public EncodedBody get(String subtype, String body) throws MessagingException {
+        Key key = new Key(subtype, body);
+        synchronized (entries) {
+            EncodedBody cached = entries.get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        }
+        misses.incrementAndGet();
+        EncodedBody encoded = encode(subtype, body);
+        put(key, encoded);
+        return encoded;
+    }
+
+    public long getCachedBytes() {
+        synchronized (entries) {
+            return cachedBytes;
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private void put(Key key, EncodedBody encoded) {
+        long maxBytes = mailProperties.getMime().getBodyCacheMaxBytes();
+        long cost = cost(key, encoded);
+        // A body larger than an eighth of the cache would just evict everything else
+        if (cost > maxBytes / 8) {
+            return;
+        }
+        synchronized (entries) {
+            EncodedBody previous = entries.put(key, encoded);
+            cachedBytes += cost;
+            if (previous != null) {
+                cachedBytes -= cost(key, previous);
+            }
+            Iterator<Map.Entry<Key, EncodedBody>> eldest = entries.entrySet().iterator();
+            while (cachedBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<Key, EncodedBody> entry = eldest.next();
+                cachedBytes -= cost(entry.getKey(), entry.getValue());
+                eldest.remove();
+            }
+        }
+    }
+
+    private long cost(Key key, EncodedBody encoded) {
+        // Key chars are held too; Latin-1 strings use a byte per char, others two
+        return (long) key.body().length() * 2 + encoded.bytes().length;
+    }
+
+    /**
+     * Encode the way MimeBodyPart.setText and writeTo would: UTF-8 bytes, encoding picked from the content
+     */
+    static EncodedBody encode(String subtype, String body) throws MessagingException {
+        byte[] raw = body.getBytes(StandardCharsets.UTF_8);
+        String contentType = "text/" + subtype + "; charset=" + CHARSET;
+        String transferEncoding = MimeUtility.getEncoding(new ByteArrayDataSource(raw, contentType));
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length + raw.length / 8 + 16);
+        try (OutputStream encoder = MimeUtility.encode(out, transferEncoding)) {
+            encoder.write(raw);
+        } catch (IOException e) {
+            throw new MessagingException("Failed to encode message body", e);
+        }
+        return new EncodedBody(contentType, transferEncoding, out.toByteArray());
+    }
+}
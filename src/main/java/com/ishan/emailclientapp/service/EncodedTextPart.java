@@ -0,0 +1,21 @@
+package com.ishan.emailclientapp.service;
+
+import jakarta.mail.MessagingException;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Text part of a multipart message written from a cached EncodedBody
+ */
+class EncodedTextPart extends PreEncodedPart {
+
+    EncodedTextPart(EncodedBody body) throws MessagingException {
+        super(body.contentType(), null, body.transferEncoding());
+        this.content = body.bytes();
+    }
+
+    @Override
+    protected void writeContent(OutputStream os) throws IOException {
+        os.write(content);
+    }
+}
@@ -0,0 +1,163 @@
+package com.ishan.emailclientapp.service;
+
+import com.ishan.emailclientapp.config.MailProperties;
+import com.ishan.emailclientapp.jfr.BorrowEvent;
+import com.ishan.emailclientapp.jfr.ConnectEvent;
+import com.ishan.emailclientapp.jfr.SendEvent;
+import com.ishan.emailclientapp.jfr.TlsHandshakeEvent;
+import com.ishan.emailclientapp.jfr.ValidateEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-process JDK Flight Recorder recording, so production latency can be broken down into the
+ * borrow, validate, connect, TLS and send phases without attaching an agent.
+ * One rolling recording is kept (bounded by maxAge and maxSize) and dumped on demand; the SMTP events
+ * cost next to nothing while it is stopped.
+ */
+@Service
+public class FlightRecordingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlightRecordingService.class);
+
+    static final String NAME = "smtp-pool";
+    static final List<Class<? extends Event>> EVENTS = List.of(
+            BorrowEvent.class, ValidateEvent.class, ConnectEvent.class, TlsHandshakeEvent.class, SendEvent.class);
+    /** JDK events that would put environment variables, system properties and JVM arguments (SMTP passwords among them) in a dump */
+    static final List<String> SECRET_EVENTS = List.of(
+            "jdk.InitialEnvironmentVariable", "jdk.InitialSystemProperty", "jdk.JVMInformation");
+
+    @Autowired
+    private MailProperties mailProperties;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile Recording recording;
+    private volatile String settings;
+
+    @PostConstruct
+    public void init() {
+        if (mailProperties.getRecording().isStartOnBoot()) {
+            try {
+                start(null, null);
+            } catch (IOException | ParseException | RuntimeException e) {
+                logger.warn("Unable to start the flight recording", e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stop();
+    }
+
+    /**
+     * Start the recording, unless one is already running
+     *
+     * @param settings      JFR configuration name (default or profile), or null for the configured one
+     * @param maxAgeSeconds history to keep, or null for the configured maxAgeSeconds
+     */
+    public Map<String, Object> start(String settings, Long maxAgeSeconds) throws IOException, ParseException {
+        MailProperties.Recording properties = mailProperties.getRecording();
+        String name = settings != null ? settings : properties.getSettings();
+        lock.lock();
+        try {
+            if (!isRunning()) {
+                Recording started = new Recording(Configuration.getConfiguration(name));
+                started.setName(NAME);
+                started.setToDisk(true);
+                started.setMaxAge(Duration.ofSeconds(maxAgeSeconds != null ? maxAgeSeconds : properties.getMaxAgeSeconds()));
+                started.setMaxSize(properties.getMaxSizeBytes());
+                for (Class<? extends Event> event : EVENTS) {
+                    started.enable(event).withThreshold(Duration.ofMillis(properties.getThresholdMillis()));
+                }
+                for (String event : SECRET_EVENTS) {
+                    started.disable(event);
+                }
+                started.start();
+                this.recording = started;
+                this.settings = name;
+                logger.info("Started flight recording with {} settings", name);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return status();
+    }
+
+    /**
+     * Stop and discard the recording; false if none was running
+     */
+    public boolean stop() {
+        lock.lock();
+        try {
+            Recording running = recording;
+            if (running == null) {
+                return false;
+            }
+            recording = null;
+            running.close();
+            logger.info("Stopped flight recording");
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Write what the running recording holds to a temporary .jfr file, which the caller deletes.
+     * The recording keeps running.
+     */
+    public Path dump() throws IOException {
+        Recording running = recording;
+        if (running == null || running.getState() != RecordingState.RUNNING) {
+            throw new IllegalStateException("No flight recording is running");
+        }
+        Path file = Files.createTempFile(NAME + "-", ".jfr");
+        try {
+            running.dump(file);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return file;
+    }
+
+    public boolean isRunning() {
+        Recording running = recording;
+        return running != null && running.getState() == RecordingState.RUNNING;
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        Recording running = recording;
+        status.put("running", isRunning());
+        if (running != null) {
+            status.put("name", running.getName());
+            status.put("settings", settings);
+            status.put("startTime", running.getStartTime());
+            status.put("maxAgeSeconds", running.getMaxAge().toSeconds());
+            status.put("sizeBytes", running.getSize());
+        }
+        status.put("events", EVENTS.stream().map(event -> event.getAnnotation(Name.class).value()).toList());
+        return status;
+    }
+}
@@ -0,0 +1,275 @@
+package com.ishan.emailclientapp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ishan.emailclientapp.config.MailProperties;
+import com.ishan.emailclientapp.model.EmailResponse;
+import com.ishan.emailclientapp.model.IdempotencyRecord;
+import com.ishan.emailclientapp.repository.IdempotencyRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Deduplicates retried send requests by Idempotency-Key, or (with contentHash=true) by a hash of the request
+ * body when no key is given.
+ * The first request with a key runs; a duplicate that arrives while it is still running waits for the same
+ * result, and one that arrives later gets the stored response replayed (with an Idempotent-Replayed header).
+ * Only responses that sent or queued something are kept, so a failed send can be retried as it was.
+ * Entries live in a concurrent map, so requests with different keys never contend; it is swept of expired
+ * entries, and of the ones closest to expiry once it passes maxEntries. With persistent=true completed
+ * entries are also kept in the database and survive restarts.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    @Autowired
+    private MailProperties mailProperties;
+
+    @Autowired
+    private IdempotencyRepository idempotencyRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * A send endpoint's handler
+     */
+    @FunctionalInterface
+    public interface Send {
+        ResponseEntity<EmailResponse> call() throws IOException;
+    }
+
+    private record Entry(String fingerprint, CompletableFuture<ResponseEntity<EmailResponse>> result, long expiresAt) {
+    }
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private Counter replayed;
+
+    @PostConstruct
+    public void init() {
+        replayed = Counter.builder("smtp.idempotency.replayed")
+                .description("Duplicate send requests answered without sending")
+                .register(meterRegistry);
+        Gauge.builder("smtp.idempotency.entries", this, IdempotencyService::size)
+                .description("Idempotency keys held in memory")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Run the send once per key
+     *
+     * @param scope          the endpoint, so the same key on different endpoints does not collide
+     * @param idempotencyKey the client's key, or null to fall back to the request's content hash
+     */
+    public ResponseEntity<EmailResponse> execute(String scope, String idempotencyKey, Object request, Send send)
+            throws IOException {
+        MailProperties.Idempotency settings = mailProperties.getIdempotency();
+        if (!settings.isEnabled() || (idempotencyKey == null && !settings.isContentHash())) {
+            return send.call();
+        }
+        String fingerprint = sha256(objectMapper.writeValueAsBytes(request));
+        long ttl = idempotencyKey != null ? settings.getTtlMillis() : settings.getContentHashTtlMillis();
+        String id = sha256((scope + ":" + (idempotencyKey != null ? idempotencyKey : fingerprint))
+                .getBytes(StandardCharsets.UTF_8));
+
+        long now = System.currentTimeMillis();
+        Entry fresh = new Entry(fingerprint, new CompletableFuture<>(), now + ttl);
+        // Only this key's bin is locked, and only for the check; an expired entry is replaced
+        Entry entry = entries.compute(id, (key, existing) ->
+                existing == null || existing.expiresAt() <= now ? fresh : existing);
+        if (entry != fresh) {
+            return replay(entry, fingerprint);
+        }
+        if (entries.size() > settings.getMaxEntries()) {
+            sweep(now);
+        }
+
+        Entry stored = settings.isPersistent() ? load(id) : null;
+        if (stored != null) {
+            entries.replace(id, entry, stored);
+            entry.result().complete(stored.result().join());
+            return replay(stored, fingerprint);
+        }
+        try {
+            ResponseEntity<EmailResponse> response = send.call();
+            if (isKept(response)) {
+                if (settings.isPersistent()) {
+                    store(id, fingerprint, response, entry.expiresAt());
+                }
+            } else {
+                forget(id, entry);
+            }
+            entry.result().complete(response);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            forget(id, entry);
+            entry.result().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Scheduled(fixedDelay = 600000, initialDelay = 600000)
+    public void purgeExpired() {
+        sweep(System.currentTimeMillis());
+        if (mailProperties.getIdempotency().isPersistent()) {
+            int deleted = idempotencyRepository.deleteExpired(Instant.now());
+            if (deleted > 0) {
+                logger.debug("Deleted {} expired idempotency records", deleted);
+            }
+        }
+    }
+
+    /**
+     * Answer a duplicate from the original's result, waiting for it if it is still running
+     */
+    private ResponseEntity<EmailResponse> replay(Entry entry, String fingerprint) throws IOException {
+        if (!entry.fingerprint().equals(fingerprint)) {
+            // Replaying the first body's response for a different body would hide the mistake
+            return error(HttpStatus.UNPROCESSABLE_ENTITY, "Idempotency-Key was already used for a different request");
+        }
+        ResponseEntity<EmailResponse> original;
+        try {
+            original = entry.result().get(mailProperties.getIdempotency().getInFlightWaitMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return error(HttpStatus.CONFLICT, "A request with this Idempotency-Key is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for the original request", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Original request failed", e.getCause());
+        }
+        replayed.increment();
+        return ResponseEntity.status(original.getStatusCode())
+                .headers(original.getHeaders())
+                .header(REPLAYED_HEADER, "true")
+                .body(original.getBody());
+    }
+
+    /**
+     * Responses worth replaying: the message was sent, or queued under an id
+     */
+    private static boolean isKept(ResponseEntity<EmailResponse> response) {
+        EmailResponse body = response.getBody();
+        return response.getStatusCode().is2xxSuccessful() && body != null
+                && (body.isSuccess() || body.getMessageId() != null);
+    }
+
+    private void forget(String id, Entry entry) {
+        entries.remove(id, entry);
+    }
+
+    /**
+     * Drop expired entries, then, past maxEntries, the completed ones closest to expiry until a tenth of
+     * the room is free again, so the sort is paid once per many inserts. One thread sweeps at a time;
+     * the others carry on.
+     */
+    private void sweep(long now) {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            entries.values().removeIf(entry -> entry.expiresAt() <= now);
+            int maxEntries = mailProperties.getIdempotency().getMaxEntries();
+            int excess = entries.size() - maxEntries + maxEntries / 10;
+            if (entries.size() <= maxEntries || excess <= 0) {
+                return;
+            }
+            // Requests still running are left alone, so their duplicates keep attaching to them
+            List<Map.Entry<String, Entry>> completed = entries.entrySet().stream()
+                    .filter(candidate -> candidate.getValue().result().isDone())
+                    .sorted(Comparator.comparingLong(candidate -> candidate.getValue().expiresAt()))
+                    .limit(excess)
+                    .toList();
+            for (Map.Entry<String, Entry> candidate : completed) {
+                entries.remove(candidate.getKey(), candidate.getValue());
+            }
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    /**
+     * A completed entry from the database, or null if there is none that is still valid
+     */
+    private Entry load(String id) {
+        try {
+            IdempotencyRecord record = idempotencyRepository.findById(id).orElse(null);
+            if (record == null || record.getExpiresAt().isBefore(Instant.now())) {
+                return null;
+            }
+            ResponseEntity<EmailResponse> response = ResponseEntity.status(record.getStatus())
+                    .body(objectMapper.readValue(record.getResponse(), EmailResponse.class));
+            return new Entry(record.getFingerprint(), CompletableFuture.completedFuture(response),
+                    record.getExpiresAt().toEpochMilli());
+        } catch (RuntimeException | JsonProcessingException e) {
+            logger.warn("Failed to read idempotency record {}", id, e);
+            return null;
+        }
+    }
+
+    private void store(String id, String fingerprint, ResponseEntity<EmailResponse> response, long expiresAt) {
+        try {
+            idempotencyRepository.save(new IdempotencyRecord(id, fingerprint, response.getStatusCode().value(),
+                    objectMapper.writeValueAsString(response.getBody()), Instant.ofEpochMilli(expiresAt)));
+        } catch (RuntimeException | JsonProcessingException e) {
+            // The send went through; only its replay after a restart is lost
+            logger.warn("Failed to store idempotency record {}", id, e);
+        }
+    }
+
+    private static ResponseEntity<EmailResponse> error(HttpStatus status, String message) {
+        EmailResponse response = new EmailResponse();
+        response.setSuccess(false);
+        response.setMessage(message);
+        return ResponseEntity.status(status).body(response);
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
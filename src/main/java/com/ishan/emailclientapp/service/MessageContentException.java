@@ -0,0 +1,14 @@
+package com.ishan.emailclientapp.service;
+
+import java.io.IOException;
+
+/**
+ * Reading a message's own content failed while it was being written (a stored attachment missing or unreadable).
+ * It surfaces from Transport.sendMessage like a network error, but says nothing about the connection or the server.
+ */
+public class MessageContentException extends IOException {
+
+    public MessageContentException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
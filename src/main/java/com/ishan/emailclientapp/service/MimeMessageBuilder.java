@@ -0,0 +1,140 @@
+package com.ishan.emailclientapp.service;
+
+import com.ishan.emailclientapp.dtos.AttachmentDTO;
+import com.ishan.emailclientapp.model.EmailRequest;
+import org.eclipse.angus.mail.smtp.SMTPMessage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import jakarta.activation.DataHandler;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Part;
+import jakarta.mail.Session;
+import jakarta.mail.internet.AddressException;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeBodyPart;
+import jakarta.mail.internet.MimeMultipart;
+import jakarta.mail.internet.MimeUtility;
+import jakarta.mail.util.ByteArrayDataSource;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds MIME messages against a shared per-server Session with as little per-message garbage as possible.
+ * Sender addresses are parsed once and cached; recipients are parsed straight into the single envelope
+ * array, and the To/Cc headers are rendered from it instead of going through setRecipients copies.
+ * Messages are SMTPMessages so a send can opt into partial delivery.
+ * Bodies come pre-encoded from the EncodedBodyCache, and stored attachments are streamed pre-encoded
+ * from the AttachmentStore; small inline ones are attached directly.
+ */
+@Component
+public class MimeMessageBuilder {
+
+    /** Bound on cached sender addresses; senders beyond it are parsed on every message */
+    static final int MAX_CACHED_SENDERS = 1024;
+
+    private static final String CHARSET = StandardCharsets.UTF_8.name();
+
+    static final String UNDISCLOSED_RECIPIENTS = "undisclosed-recipients:;";
+
+    @Autowired
+    private AttachmentStore attachmentStore;
+
+    @Autowired
+    private EncodedBodyCache encodedBodyCache;
+
+    private final Map<String, InternetAddress> senders = new ConcurrentHashMap<>();
+
+    public OutboundMessage build(Session session, EmailRequest emailRequest) throws MessagingException {
+        EncodedBody body = encodedBodyCache.get(emailRequest.isHtml() ? "html" : "plain", emailRequest.getBody());
+        List<AttachmentDTO> attachments = emailRequest.getAttachments();
+        boolean multipart = attachments != null && !attachments.isEmpty();
+        SMTPMessage message = multipart ? new SMTPMessage(session) : new PreEncodedMimeMessage(session, body);
+        message.setFrom(sender(emailRequest.getFrom()));
+
+        List<String> to = emailRequest.getTo();
+        List<String> cc = emailRequest.getCc();
+        List<String> bcc = emailRequest.getBcc();
+        int ccCount = cc == null ? 0 : cc.size();
+        int bccCount = bcc == null ? 0 : bcc.size();
+        InternetAddress[] recipients = new InternetAddress[to.size() + ccCount + bccCount];
+        int next = parseInto(to, recipients, 0);
+        next = parseInto(cc, recipients, next);
+        parseInto(bcc, recipients, next);
+
+        if (to.isEmpty()) {
+            // Merged envelope whose recipients must not see each other
+            message.setHeader("To", UNDISCLOSED_RECIPIENTS);
+        } else {
+            message.setHeader("To", header("To", recipients, 0, to.size()));
+        }
+        if (ccCount > 0) {
+            message.setHeader("Cc", header("Cc", recipients, to.size(), to.size() + ccCount));
+        }
+        // Bcc recipients stay in the envelope only
+        message.setSubject(emailRequest.getSubject(), CHARSET);
+        if (multipart) {
+            MimeMultipart mixed = new MimeMultipart();
+            mixed.addBodyPart(new EncodedTextPart(body));
+            for (AttachmentDTO attachment : attachments) {
+                mixed.addBodyPart(attachmentPart(attachment));
+            }
+            message.setContent(mixed);
+        }
+        return new OutboundMessage(message, recipients);
+    }
+
+    private MimeBodyPart attachmentPart(AttachmentDTO attachment) throws MessagingException {
+        if (attachment.getContentHash() != null) {
+            return attachmentStore.part(attachment);
+        }
+        if (attachment.getContent() == null) {
+            throw new MessagingException("Attachment " + attachment.getFileName() + " has no content");
+        }
+        String contentType = attachment.getFileType() == null ? "application/octet-stream" : attachment.getFileType();
+        MimeBodyPart part = new MimeBodyPart();
+        part.setDataHandler(new DataHandler(new ByteArrayDataSource(attachment.getContent(), contentType)));
+        part.setDisposition(Part.ATTACHMENT);
+        if (attachment.getFileName() != null) {
+            part.setFileName(attachment.getFileName());
+        }
+        return part;
+    }
+
+    /**
+     * Cached parse of a sender address; InternetAddress instances are only read, never mutated
+     */
+    InternetAddress sender(String address) throws AddressException {
+        InternetAddress parsed = senders.get(address);
+        if (parsed == null) {
+            parsed = new InternetAddress(address);
+            if (senders.size() < MAX_CACHED_SENDERS) {
+                senders.putIfAbsent(address, parsed);
+            }
+        }
+        return parsed;
+    }
+
+    private int parseInto(List<String> addresses, InternetAddress[] target, int offset) throws AddressException {
+        if (addresses == null) {
+            return offset;
+        }
+        for (String address : addresses) {
+            target[offset++] = new InternetAddress(address);
+        }
+        return offset;
+    }
+
+    private String header(String name, InternetAddress[] addresses, int from, int to) {
+        StringBuilder value = new StringBuilder(32 * (to - from));
+        for (int i = from; i < to; i++) {
+            if (i > from) {
+                value.append(", ");
+            }
+            value.append(addresses[i].toString());
+        }
+        return MimeUtility.fold(name.length() + 2, value.toString());
+    }
+}
@@ -0,0 +1,11 @@
+package com.ishan.emailclientapp.service;
+
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+
+/**
+ * A built message and its SMTP envelope recipients (To, Cc and Bcc), so sending
+ * never has to re-parse the recipient headers
+ */
+public record OutboundMessage(MimeMessage message, InternetAddress[] recipients) {
+}
@@ -0,0 +1,241 @@
+package com.ishan.emailclientapp.service;
+
+import com.ishan.emailclientapp.config.MailProperties;
+import com.ishan.emailclientapp.model.EmailRequest;
+import com.ishan.emailclientapp.model.OutboxMessage;
+import com.ishan.emailclientapp.model.Priority;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Worker pool that drains the outbox: each worker claims a batch of rows,
+ * sends it through the SMTP connection pool and records the outcome in batched updates.
+ * Rows that failed transiently stay leased and are retried from the RetryScheduler, preferring another
+ * server; if this instance dies first, the lease runs out and another worker claims them.
+ * Permanent rejections fail at once.
+ * Each claim takes rows of a single priority lane, picked by weight among the lanes with rows due,
+ * so a large bulk backlog delays transactional rows by at most one batch per worker.
+ */
+@Service
+public class OutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private AdmissionService admissionService;
+
+    @Autowired
+    private RetryScheduler retryScheduler;
+
+    @Autowired
+    private BulkJobService bulkJobService;
+
+    @Autowired
+    private MailProperties mailProperties;
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Semaphore wakeups = new Semaphore(0);
+    private ExecutorService workers;
+    private WeightedLanes lanes;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        MailProperties.Outbox outbox = mailProperties.getOutbox();
+        lanes = new WeightedLanes(mailProperties.getLanes());
+        if (!outbox.isEnabled()) {
+            logger.info("Outbox dispatcher disabled");
+            return;
+        }
+        running = true;
+        workers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("outbox-worker-", 0).factory());
+        for (int i = 0; i < outbox.getWorkers(); i++) {
+            String owner = instanceId + "-" + i;
+            workers.submit(() -> runWorker(owner));
+        }
+        logger.info("Outbox dispatcher started with {} workers", outbox.getWorkers());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (workers != null) {
+            workers.shutdown();
+            if (!workers.awaitTermination(30, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Wake idle workers after new rows were enqueued, instead of waiting out the poll interval
+     */
+    public void wakeUp() {
+        if (running && wakeups.availablePermits() == 0) {
+            wakeups.release(mailProperties.getOutbox().getWorkers());
+        }
+    }
+
+    private void runWorker(String owner) {
+        long pollInterval = mailProperties.getOutbox().getPollIntervalMillis();
+        while (running) {
+            try {
+                if (dispatchBatch(owner) == 0) {
+                    wakeups.tryAcquire(pollInterval, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("Outbox worker {} failed to dispatch batch", owner, e);
+                try {
+                    Thread.sleep(pollInterval);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Claim, send and settle one batch
+     *
+     * @return number of rows claimed
+     */
+    int dispatchBatch(String owner) {
+        List<OutboxMessage> claimed = List.of();
+        Set<Priority> drained = EnumSet.noneOf(Priority.class);
+        Priority lane = null;
+        while (claimed.isEmpty() && (lane = lanes.next(l -> !drained.contains(l))) != null) {
+            claimed = outboxService.claimBatch(owner, lane);
+            drained.add(lane);
+        }
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+
+        List<OutboxMessage> sent = new ArrayList<>();
+        Map<OutboxMessage, List<String>> partial = new LinkedHashMap<>();
+        List<OutboxMessage> failed = new ArrayList<>();
+        List<OutboxMessage> rejected = new ArrayList<>();
+        List<OutboxMessage> messages = new ArrayList<>(claimed.size());
+        List<EmailRequest> requests = new ArrayList<>(claimed.size());
+        for (OutboxMessage message : claimed) {
+            try {
+                requests.add(outboxService.readRequest(message));
+                messages.add(message);
+            } catch (Exception e) {
+                // Parsing again will not help, so fail it now rather than after every attempt
+                logger.error("Unreadable outbox payload for message {}", message.getId(), e);
+                rejected.add(message);
+            }
+        }
+
+        BatchResult result = emailService.sendBatch(requests);
+        Map<Integer, List<String>> undelivered = result.partial();
+        int retried = 0;
+        for (int i = 0; i < messages.size(); i++) {
+            OutboxMessage message = messages.get(i);
+            if (result.delivered()[i]) {
+                sent.add(message);
+            } else if (undelivered.containsKey(i)) {
+                // Some recipients have it: resending would duplicate it for them, so report who was missed
+                partial.put(message, undelivered.get(i));
+            } else if (result.retryable()[i] && !running) {
+                // Shutting down: leave the retry to the next claim
+                failed.add(message);
+            } else if (result.retryable()[i] && scheduleRetry(owner, message, requests.get(i),
+                    message.getAttempts() + 1, result.server())) {
+                retried++;
+            } else {
+                rejected.add(message);
+            }
+        }
+
+        outboxService.markSent(ids(sent), owner);
+        outboxService.markPartial(partial.entrySet().stream()
+                .collect(Collectors.toMap(entry -> entry.getKey().getId(), Map.Entry::getValue)), owner);
+        outboxService.markFailed(ids(failed), owner);
+        outboxService.markRejected(ids(rejected), owner);
+        // Jobs see the outcome once the rows say the same
+        sent.forEach(message -> bulkJobService.record(message, BulkJob.Status.SENT));
+        partial.forEach(bulkJobService::recordPartial);
+        failed.forEach(this::recordFailed);
+        rejected.forEach(message -> bulkJobService.record(message, BulkJob.Status.FAILED));
+        admissionService.onProcessed(claimed.size());
+        logger.debug("Outbox worker {} dispatched {} {} emails: {} sent, {} partly sent, {} retrying, {} failed",
+                owner, claimed.size(), lane, sent.size(), partial.size(), retried, failed.size() + rejected.size());
+        return claimed.size();
+    }
+
+    /**
+     * Keep a transiently failed row leased and retry it after a backoff, away from the server it failed on
+     *
+     * @param attempt the attempt that just failed, counting earlier claims of the row
+     * @return false if the row is out of attempts
+     */
+    private boolean scheduleRetry(String owner, OutboxMessage message, EmailRequest request, int attempt,
+                                  String failedServer) {
+        if (!retryScheduler.canRetry(attempt, mailProperties.getOutbox().getMaxAttempts())) {
+            return false;
+        }
+        Long id = message.getId();
+        long delay = retryScheduler.backoffMillis(attempt);
+        outboxService.deferLeased(List.of(id), owner, delay);
+        retryScheduler.schedule(delay, () -> emailService.submitAttempt(request, failedServer).whenComplete((outcome, error) -> {
+            try {
+                if (error == null && outcome.sent()) {
+                    outboxService.markSent(List.of(id), owner);
+                    bulkJobService.record(message, BulkJob.Status.SENT);
+                } else if (error == null && outcome.retryable() && !running) {
+                    outboxService.markFailed(List.of(id), owner);
+                } else if (error != null || !outcome.retryable()
+                        || !scheduleRetry(owner, message, request, attempt + 1, outcome.server())) {
+                    outboxService.markRejected(List.of(id), owner);
+                    bulkJobService.record(message, BulkJob.Status.FAILED);
+                }
+            } catch (Exception e) {
+                // The lease runs out and the row is claimed again
+                logger.error("Failed to settle retried outbox message {}", id, e);
+            }
+        }));
+        return true;
+    }
+
+    private static List<Long> ids(List<OutboxMessage> messages) {
+        return messages.stream().map(OutboxMessage::getId).toList();
+    }
+
+    /**
+     * Report a row put back by markFailed to its job once it has no attempts left
+     */
+    private void recordFailed(OutboxMessage message) {
+        if (message.getAttempts() + 1 >= mailProperties.getOutbox().getMaxAttempts()) {
+            bulkJobService.record(message, BulkJob.Status.FAILED);
+        }
+    }
+}
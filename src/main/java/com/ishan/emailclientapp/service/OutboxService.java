@@ -0,0 +1,177 @@
+package com.ishan.emailclientapp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ishan.emailclientapp.config.MailProperties;
+import com.ishan.emailclientapp.model.EmailRequest;
+import com.ishan.emailclientapp.model.OutboxMessage;
+import com.ishan.emailclientapp.model.OutboxStatus;
+import com.ishan.emailclientapp.model.Priority;
+import com.ishan.emailclientapp.repository.OutboxRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistence side of the outbox: batched intake, lease-based claiming and batched status updates
+ */
+@Service
+public class OutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxService.class);
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Autowired
+    private MailProperties mailProperties;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private AttachmentStore attachmentStore;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Persist requests for later delivery. Inserts are flushed in JDBC batches
+     * and the persistence context is cleared as we go, so large lists don't pile up in memory.
+     * Large inline attachments are moved to the AttachmentStore first, so payloads only carry a reference.
+     *
+     * @return outbox ids in request order
+     */
+    @Transactional
+    public List<Long> enqueue(List<EmailRequest> emailRequests) throws JsonProcessingException {
+        return enqueue(emailRequests, null, null);
+    }
+
+    /**
+     * Persist the requests of a bulk job; positions are their indexes in the submitted list
+     */
+    @Transactional
+    public List<Long> enqueue(List<EmailRequest> emailRequests, BulkJob job, List<Integer> positions)
+            throws JsonProcessingException {
+        int batchSize = mailProperties.getOutbox().getBatchSize();
+        Instant now = Instant.now();
+        List<Long> ids = new ArrayList<>(emailRequests.size());
+        for (int i = 0; i < emailRequests.size(); i++) {
+            EmailRequest emailRequest = emailRequests.get(i);
+            try {
+                attachmentStore.externalize(emailRequest);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to store attachments", e);
+            }
+            OutboxMessage message = new OutboxMessage(objectMapper.writeValueAsString(emailRequest),
+                    Priority.of(emailRequest), now);
+            if (job != null) {
+                message.setJobId(job.getId());
+                message.setJobIndex(positions.get(i));
+                // Invalid positions have no row, so the size of the list is kept for rebuilding the job
+                message.setJobTotal(job.getTotal());
+            }
+            entityManager.persist(message);
+            ids.add(message.getId());
+            if ((i + 1) % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        logger.debug("Enqueued {} emails in outbox", emailRequests.size());
+        return ids;
+    }
+
+    /**
+     * Claim up to batchSize deliverable rows of one lane for the given worker and lease them
+     */
+    @Transactional
+    public List<OutboxMessage> claimBatch(String owner, Priority lane) {
+        MailProperties.Outbox outbox = mailProperties.getOutbox();
+        Instant now = Instant.now();
+        List<OutboxMessage> claimed = outboxRepository.findClaimable(lane.name(), now, outbox.getBatchSize());
+        if (!claimed.isEmpty()) {
+            outboxRepository.lease(claimed.stream().map(OutboxMessage::getId).toList(),
+                    OutboxStatus.IN_PROGRESS, owner, now.plusMillis(outbox.getLeaseMillis()));
+        }
+        return claimed;
+    }
+
+    @Transactional
+    public void markSent(Collection<Long> ids, String owner) {
+        if (!ids.isEmpty()) {
+            outboxRepository.markSent(ids, owner, Instant.now());
+        }
+    }
+
+    /**
+     * Settle rows that reached only some of their recipients as sent, keeping the addresses each did not reach
+     */
+    @Transactional
+    public void markPartial(Map<Long, List<String>> undelivered, String owner) {
+        Instant now = Instant.now();
+        undelivered.forEach((id, addresses) -> outboxRepository.markPartial(id, owner, now, String.join(",", addresses)));
+    }
+
+    /**
+     * Put failed rows back for a later attempt; rows out of attempts become FAILED
+     */
+    @Transactional
+    public void markFailed(Collection<Long> ids, String owner) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        MailProperties.Outbox outbox = mailProperties.getOutbox();
+        outboxRepository.markRetry(ids, owner, Instant.now().plusMillis(outbox.getRetryDelayMillis()));
+        int exhausted = outboxRepository.markExhausted(ids, outbox.getMaxAttempts());
+        if (exhausted > 0) {
+            logger.warn("{} outbox emails failed permanently after {} attempts", exhausted, outbox.getMaxAttempts());
+        }
+    }
+
+    /**
+     * Count a transient failure and extend the lease over an in-memory retry, so the row is only
+     * picked up by another worker if this one dies before the retry settles it
+     */
+    @Transactional
+    public void deferLeased(Collection<Long> ids, String owner, long retryDelayMillis) {
+        if (!ids.isEmpty()) {
+            outboxRepository.deferLeased(ids, owner,
+                    Instant.now().plusMillis(retryDelayMillis + mailProperties.getOutbox().getLeaseMillis()));
+        }
+    }
+
+    /**
+     * Fail rows for good: permanent rejections and transient failures out of attempts
+     */
+    @Transactional
+    public void markRejected(Collection<Long> ids, String owner) {
+        if (!ids.isEmpty()) {
+            outboxRepository.markRejected(ids, owner);
+        }
+    }
+
+    public EmailRequest readRequest(OutboxMessage message) throws JsonProcessingException {
+        return objectMapper.readValue(message.getPayload(), EmailRequest.class);
+    }
+
+    public List<Object[]> findJobStatuses(String jobId) {
+        return outboxRepository.findJobStatuses(jobId);
+    }
+
+    public long countByStatus(OutboxStatus status) {
+        return outboxRepository.countByStatus(status);
+    }
+}
@@ -0,0 +1,147 @@
+package com.ishan.emailclientapp.service;
+
+import com.ishan.emailclientapp.config.MailProperties;
+import com.ishan.emailclientapp.config.MailProperties.SmtpServer;
+import com.ishan.emailclientapp.config.SmtpConnectionPoolFactory;
+import jakarta.annotation.PreDestroy;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import jakarta.mail.Transport;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connects minIdle transports per server in parallel, so the first requests after a deploy
+ * or a server's recovery find open connections instead of paying TCP+TLS+AUTH one by one.
+ * Startup warm-up gates the readiness probe (see PoolWarmupHealthIndicator).
+ * Also replaces retired connections off the sending thread.
+ */
+@Service
+public class PoolWarmer {
+
+    private static final Logger logger = LoggerFactory.getLogger(PoolWarmer.class);
+
+    @Autowired
+    private GenericKeyedObjectPool<String, Transport> smtpConnectionPool;
+
+    @Autowired
+    private SmtpConnectionPoolFactory smtpConnectionPoolFactory;
+
+    @Autowired
+    private MailProperties mailProperties;
+
+    // Platform threads: Angus connects inside synchronized methods, which would pin virtual-thread carriers
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofPlatform().name("pool-warmup-", 0).daemon().factory());
+    private final Map<String, CompletableFuture<Integer>> refills = new ConcurrentHashMap<>();
+    private volatile CompletableFuture<Void> startup;
+    private volatile long startedAt;
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void warmUp() {
+        if (!mailProperties.getPool().getWarmup().isEnabled()) {
+            startup = CompletableFuture.completedFuture(null);
+            return;
+        }
+        startedAt = System.currentTimeMillis();
+        CompletableFuture<?>[] servers = smtpConnectionPoolFactory.getServers().stream()
+                .map(server -> refill(server.getName()))
+                .toArray(CompletableFuture[]::new);
+        startup = CompletableFuture.allOf(servers).thenRun(() -> logger.info("Pool warm-up finished in {} ms, {} idle connections",
+                System.currentTimeMillis() - startedAt, smtpConnectionPool.getNumIdle()));
+    }
+
+    /**
+     * Connect transports in parallel until the server has minIdle idle connections.
+     * A refill already running for the server is shared rather than doubled.
+     *
+     * @return the number of connections added
+     */
+    public CompletableFuture<Integer> refill(String server) {
+        return refills.compute(server, (key, running) ->
+                running != null && !running.isDone() ? running : startRefill(key));
+    }
+
+    private CompletableFuture<Integer> startRefill(String server) {
+        int missing = smtpConnectionPool.getMinIdlePerKey() - smtpConnectionPool.getNumIdle(server);
+        if (missing <= 0) {
+            return CompletableFuture.completedFuture(0);
+        }
+        AtomicInteger added = new AtomicInteger();
+        CompletableFuture<?>[] connects = new CompletableFuture[missing];
+        for (int i = 0; i < missing; i++) {
+            connects[i] = CompletableFuture.runAsync(() -> addConnection(server, added), executor);
+        }
+        return CompletableFuture.allOf(connects).thenApply(done -> {
+            if (added.get() < missing) {
+                logger.warn("Warm-up connected {} of {} transports to {}", added.get(), missing, server);
+            } else {
+                logger.info("Warm-up connected {} transports to {}", missing, server);
+            }
+            return added.get();
+        });
+    }
+
+    /**
+     * Retire a borrowed connection in the background: close it and open a replacement,
+     * so the thread returning it does not wait for QUIT or a new handshake
+     */
+    public void replace(String server, Transport transport) {
+        executor.execute(() -> {
+            try {
+                smtpConnectionPool.invalidateObject(server, transport);
+            } catch (Exception e) {
+                logger.warn("Failed to retire connection to {}", server, e);
+            }
+            addConnection(server, new AtomicInteger());
+        });
+    }
+
+    private void addConnection(String server, AtomicInteger added) {
+        try {
+            smtpConnectionPool.addObject(server);
+            added.incrementAndGet();
+        } catch (Exception e) {
+            logger.debug("Warm-up connection to {} failed", server, e);
+        }
+    }
+
+    /**
+     * True once startup warm-up has finished, or has run longer than warmup.timeoutMillis
+     */
+    public boolean isWarm() {
+        CompletableFuture<Void> current = startup;
+        if (current == null) {
+            return false;
+        }
+        return current.isDone()
+                || System.currentTimeMillis() - startedAt > mailProperties.getPool().getWarmup().getTimeoutMillis();
+    }
+
+    /**
+     * Idle connections per server against the minIdle target
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> servers = new LinkedHashMap<>();
+        for (SmtpServer server : smtpConnectionPoolFactory.getServers()) {
+            servers.put(server.getName(), smtpConnectionPool.getNumIdle(server.getName()) + "/" + smtpConnectionPool.getMinIdlePerKey());
+        }
+        return servers;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
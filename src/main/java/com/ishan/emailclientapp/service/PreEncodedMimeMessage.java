@@ -0,0 +1,28 @@
+package com.ishan.emailclientapp.service;
+
+import org.eclipse.angus.mail.smtp.SMTPMessage;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+
+/**
+ * Single-part message whose body comes from a cached EncodedBody.
+ * MimeMessage writes its raw content bytes unchanged while the message is not marked modified,
+ * so only the per-message headers are generated on send.
+ */
+class PreEncodedMimeMessage extends SMTPMessage {
+
+    PreEncodedMimeMessage(Session session, EncodedBody body) throws MessagingException {
+        super(session);
+        this.content = body.bytes();
+        setHeader("Content-Type", body.contentType());
+        setHeader("Content-Transfer-Encoding", body.transferEncoding());
+    }
+
+    @Override
+    protected void updateHeaders() throws MessagingException {
+        super.updateHeaders();
+        // saveChanges marks the message modified, which would re-encode through the DataHandler
+        modified = false;
+    }
+}
@@ -0,0 +1,46 @@
+package com.ishan.emailclientapp.service;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeBodyPart;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+
+/**
+ * Body part whose content is already transfer-encoded. Headers are fixed at construction
+ * and writeTo copies the encoded bytes as-is instead of re-encoding through a DataHandler.
+ */
+abstract class PreEncodedPart extends MimeBodyPart {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    PreEncodedPart(String contentType, String contentDisposition, String transferEncoding) throws MessagingException {
+        setHeader("Content-Type", contentType);
+        if (contentDisposition != null) {
+            setHeader("Content-Disposition", contentDisposition);
+        }
+        setHeader("Content-Transfer-Encoding", transferEncoding);
+    }
+
+    /**
+     * Write the transfer-encoded content
+     */
+    protected abstract void writeContent(OutputStream os) throws IOException;
+
+    @Override
+    protected void updateHeaders() {
+        // Headers were set once in the constructor and describe the stored encoding
+    }
+
+    @Override
+    public void writeTo(OutputStream os) throws IOException, MessagingException {
+        Enumeration<String> lines = getAllHeaderLines();
+        while (lines.hasMoreElements()) {
+            os.write(lines.nextElement().getBytes(StandardCharsets.UTF_8));
+            os.write(CRLF);
+        }
+        os.write(CRLF);
+        writeContent(os);
+    }
+}
@@ -0,0 +1,198 @@
+package com.ishan.emailclientapp.service;
+
+import com.ishan.emailclientapp.model.Priority;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Resizable semaphore with a wait queue per priority lane.
+ * A freed permit is handed to a waiting lane picked by WeightedLanes, so under contention each lane
+ * gets its weighted share and a bulk backlog cannot starve transactional sends. The top reservedShare
+ * of the permits is only handed to TRANSACTIONAL, so some capacity stays free for it however much
+ * lower-priority work is queued.
+ * Uses a ReentrantLock rather than synchronized, so waiting virtual threads do not pin their carriers.
+ */
+public class PrioritySemaphore {
+
+    private static final Priority[] LANES = Priority.values();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition[] granted = new Condition[LANES.length];
+    private final int[] waiting = new int[LANES.length];
+    /** Permits handed to a lane's waiters that have not woken up yet */
+    private final int[] grants = new int[LANES.length];
+    private final WeightedLanes lanes;
+    private final double reservedShare;
+    private volatile int limit;
+    /** Permits in use, including grants */
+    private int held;
+
+    public PrioritySemaphore(int limit, WeightedLanes lanes, double reservedShare) {
+        this.limit = limit;
+        this.lanes = lanes;
+        this.reservedShare = reservedShare;
+        for (int i = 0; i < LANES.length; i++) {
+            granted[i] = lock.newCondition();
+        }
+    }
+
+    /**
+     * Take a permit if one is free for the lane. Free permits never sit next to waiters that may use them,
+     * so this does not jump the queue.
+     */
+    public boolean tryAcquire(Priority lane) {
+        lock.lock();
+        try {
+            if (admits(lane)) {
+                held++;
+                return true;
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait for a permit for the lane for as long as it takes
+     */
+    public void acquire(Priority lane) throws InterruptedException {
+        acquire(lane, false, 0);
+    }
+
+    public boolean tryAcquire(Priority lane, long timeout, TimeUnit unit) throws InterruptedException {
+        return acquire(lane, true, unit.toNanos(timeout));
+    }
+
+    private boolean acquire(Priority lane, boolean timed, long nanos) throws InterruptedException {
+        int i = lane.ordinal();
+        lock.lockInterruptibly();
+        try {
+            if (admits(lane)) {
+                held++;
+                return true;
+            }
+            waiting[i]++;
+            try {
+                while (grants[i] == 0) {
+                    if (!timed) {
+                        granted[i].await();
+                    } else if (nanos <= 0) {
+                        return false;
+                    } else {
+                        nanos = granted[i].awaitNanos(nanos);
+                    }
+                }
+                grants[i]--;
+                return true;
+            } finally {
+                waiting[i]--;
+                // A grant meant for a waiter that gave up goes back to the other lanes
+                if (grants[i] > waiting[i]) {
+                    grants[i]--;
+                    held--;
+                    dispatch();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release() {
+        lock.lock();
+        try {
+            held--;
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Change the number of permits; shrinking below the permits held leaves availablePermits negative
+     * until enough holders release
+     */
+    public void setLimit(int newLimit) {
+        lock.lock();
+        try {
+            limit = newLimit;
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Permits only TRANSACTIONAL may take; one permit always stays open to the other lanes
+     */
+    public int getReserved() {
+        int current = limit;
+        return current <= 1 ? 0 : Math.min(current - 1, (int) Math.ceil(current * reservedShare));
+    }
+
+    public int availablePermits() {
+        lock.lock();
+        try {
+            return limit - held;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Permits currently held
+     */
+    public int inUse() {
+        lock.lock();
+        try {
+            return held;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueueLength() {
+        lock.lock();
+        try {
+            int queued = 0;
+            for (int i = 0; i < LANES.length; i++) {
+                queued += waiting[i] - grants[i];
+            }
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueueLength(Priority lane) {
+        lock.lock();
+        try {
+            return waiting[lane.ordinal()] - grants[lane.ordinal()];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean admits(Priority lane) {
+        return held < (lane == Priority.TRANSACTIONAL ? limit : limit - getReserved());
+    }
+
+    /**
+     * Hand free permits to waiting lanes in weighted order
+     */
+    private void dispatch() {
+        Priority lane;
+        while ((lane = lanes.next(l -> waiting[l.ordinal()] > grants[l.ordinal()] && admits(l))) != null) {
+            grants[lane.ordinal()]++;
+            held++;
+            granted[lane.ordinal()].signal();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.ishan.emailclientapp.service;
+
+import com.ishan.emailclientapp.dtos.AttachmentDTO;
+import com.ishan.emailclientapp.model.EmailRequest;
+import com.ishan.emailclientapp.model.Priority;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Merges bulk requests with identical content (from, subject, body, attachments) into envelopes
+ * that carry one DATA transfer to many RCPT TO addresses.
+ * Requests addressed to a single To with no Cc merge freely; since their To headers differ, the merged
+ * message is sent with "undisclosed-recipients" and every address in the envelope only, so no recipient
+ * sees another. Requests with visible co-recipients (several To, or any Cc) only merge with requests that
+ * have exactly the same To/Cc, and keep those headers. Addresses are deduplicated case-insensitively.
+ */
+@Component
+public class RecipientMerger {
+
+    /**
+     * One outgoing message and the batch requests it delivers
+     *
+     * @param request  the message to send; its envelope is to + cc + bcc
+     * @param members  indexes of the merged requests in the batch
+     */
+    public record Envelope(EmailRequest request, List<Integer> members) {
+
+        public boolean merged() {
+            return members.size() > 1;
+        }
+    }
+
+    /**
+     * Group a batch into envelopes of at most maxRecipients addresses, in order of first appearance.
+     * A single request with more recipients than the cap is sent on its own, as it would be unmerged.
+     */
+    public List<Envelope> merge(List<EmailRequest> batch, int maxRecipients) {
+        Map<ContentKey, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            groups.computeIfAbsent(ContentKey.of(batch.get(i)), key -> new ArrayList<>()).add(i);
+        }
+
+        List<Envelope> envelopes = new ArrayList<>(groups.size());
+        for (List<Integer> group : groups.values()) {
+            List<Integer> members = new ArrayList<>();
+            Set<String> addresses = new LinkedHashSet<>();
+            for (int index : group) {
+                Set<String> own = addresses(batch.get(index));
+                int added = 0;
+                for (String address : own) {
+                    added += addresses.contains(address) ? 0 : 1;
+                }
+                if (!members.isEmpty() && addresses.size() + added > maxRecipients) {
+                    envelopes.add(envelope(batch, members));
+                    members = new ArrayList<>();
+                    addresses.clear();
+                }
+                members.add(index);
+                addresses.addAll(own);
+            }
+            envelopes.add(envelope(batch, members));
+        }
+        return envelopes;
+    }
+
+    /**
+     * Normalized envelope addresses of a request (to, cc and bcc)
+     */
+    public static Set<String> addresses(EmailRequest request) {
+        Set<String> addresses = new LinkedHashSet<>();
+        addAll(addresses, request.getTo());
+        addAll(addresses, request.getCc());
+        addAll(addresses, request.getBcc());
+        return addresses;
+    }
+
+    /**
+     * Bare, lower-cased address for comparisons; display names are dropped
+     */
+    public static String normalize(String address) {
+        String trimmed = address.trim();
+        int open = trimmed.lastIndexOf('<');
+        int close = trimmed.lastIndexOf('>');
+        if (open >= 0 && close > open) {
+            trimmed = trimmed.substring(open + 1, close).trim();
+        }
+        return trimmed.toLowerCase(Locale.ROOT);
+    }
+
+    private Envelope envelope(List<EmailRequest> batch, List<Integer> members) {
+        EmailRequest first = batch.get(members.get(0));
+        if (members.size() == 1) {
+            return new Envelope(first, members);
+        }
+
+        boolean sameHeaders = true;
+        for (int index : members) {
+            EmailRequest member = batch.get(index);
+            sameHeaders &= normalized(member.getTo()).equals(normalized(first.getTo()))
+                    && normalized(member.getCc()).equals(normalized(first.getCc()));
+        }
+
+        List<String> to = sameHeaders ? first.getTo() : List.of();
+        List<String> cc = sameHeaders ? first.getCc() : null;
+        Set<String> visible = new LinkedHashSet<>(normalized(to));
+        visible.addAll(normalized(cc));
+        // Everyone not named in the shared headers travels in the envelope only
+        Map<String, String> hidden = new LinkedHashMap<>();
+        for (int index : members) {
+            EmailRequest member = batch.get(index);
+            for (List<String> list : Arrays.asList(member.getTo(), member.getCc(), member.getBcc())) {
+                if (list == null) {
+                    continue;
+                }
+                for (String address : list) {
+                    String key = normalize(address);
+                    if (!visible.contains(key)) {
+                        hidden.putIfAbsent(key, address);
+                    }
+                }
+            }
+        }
+
+        EmailRequest merged = new EmailRequest(first.getFrom(), dedupe(to), cc == null ? null : dedupe(cc),
+                new ArrayList<>(hidden.values()), first.getSubject(), first.getBody(), first.isHtml(),
+                first.getAttachments(), first.getPriority());
+        return new Envelope(merged, members);
+    }
+
+    private static List<String> dedupe(List<String> addresses) {
+        Map<String, String> unique = new LinkedHashMap<>();
+        for (String address : addresses) {
+            unique.putIfAbsent(normalize(address), address);
+        }
+        return new ArrayList<>(unique.values());
+    }
+
+    private static Set<String> normalized(List<String> addresses) {
+        Set<String> normalized = new LinkedHashSet<>();
+        addAll(normalized, addresses);
+        return normalized;
+    }
+
+    private static void addAll(Set<String> target, List<String> addresses) {
+        if (addresses != null) {
+            for (String address : addresses) {
+                target.add(normalize(address));
+            }
+        }
+    }
+
+    /**
+     * What must match for two requests to share a DATA transfer
+     *
+     * @param headers normalized To and Cc for requests with visible co-recipients, null for a lone To
+     */
+    private record ContentKey(String from, String subject, String body, boolean html,
+                              List<AttachmentKey> attachments, List<Set<String>> headers, Priority priority) {
+
+        static ContentKey of(EmailRequest request) {
+            List<AttachmentKey> attachments = request.getAttachments() == null ? List.of()
+                    : request.getAttachments().stream().map(AttachmentKey::new).toList();
+            boolean lone = (request.getCc() == null || request.getCc().isEmpty())
+                    && request.getTo() != null && request.getTo().size() == 1;
+            List<Set<String>> headers = lone ? null : List.of(normalized(request.getTo()), normalized(request.getCc()));
+            return new ContentKey(request.getFrom(), request.getSubject(), request.getBody(), request.isHtml(),
+                    attachments, headers, Priority.of(request));
+        }
+    }
+
+    /**
+     * Attachment identity by stored hash, or by inline content
+     */
+    private static final class AttachmentKey {
+        private final AttachmentDTO attachment;
+        private final int hash;
+
+        AttachmentKey(AttachmentDTO attachment) {
+            this.attachment = attachment;
+            this.hash = Objects.hash(attachment.getFileName(), attachment.getFileType(), attachment.getContentHash())
+                    * 31 + Arrays.hashCode(attachment.getContent());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof AttachmentKey other)) {
+                return false;
+            }
+            AttachmentDTO a = attachment;
+            AttachmentDTO b = other.attachment;
+            return hash == other.hash
+                    && Objects.equals(a.getFileName(), b.getFileName())
+                    && Objects.equals(a.getFileType(), b.getFileType())
+                    && Objects.equals(a.getContentHash(), b.getContentHash())
+                    && Arrays.equals(a.getContent(), b.getContent());
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.ishan.emailclientapp.service;
+
+import com.ishan.emailclientapp.config.MailProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Delays retries of transiently failed sends (4xx replies, dropped connections) on a hashed timing wheel,
+ * so pending retries cost one queue entry each rather than a sleeping thread.
+ * Delays grow exponentially per attempt with full jitter, so messages that failed together do not
+ * come back together.
+ */
+@Service
+public class RetryScheduler {
+
+    @Autowired
+    private MailProperties mailProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private TimingWheel wheel;
+    private Counter scheduled;
+    private Counter exhausted;
+
+    @PostConstruct
+    public void init() {
+        MailProperties.Retry retry = mailProperties.getRetry();
+        // Expired tasks only hand work to the dispatch engine, so they run on the ticker itself
+        wheel = new TimingWheel("retry-wheel", retry.getTickMillis(), retry.getWheelSize(), Runnable::run);
+        Gauge.builder("smtp.retry.pending", wheel, TimingWheel::getPending)
+                .description("Retries waiting on the timing wheel")
+                .register(meterRegistry);
+        scheduled = Counter.builder("smtp.retry.scheduled")
+                .description("Transient failures scheduled for another attempt")
+                .register(meterRegistry);
+        exhausted = Counter.builder("smtp.retry.exhausted")
+                .description("Transient failures given up after maxAttempts")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        wheel.stop();
+    }
+
+    /**
+     * Whether a message that just failed its attempt-th attempt (1-based) may be tried again
+     */
+    public boolean canRetry(int attempt, int maxAttempts) {
+        if (attempt < maxAttempts) {
+            return true;
+        }
+        exhausted.increment();
+        return false;
+    }
+
+    /**
+     * Jittered delay before the next attempt: uniform in [0, min(max, base * 2^(attempt - 1))]
+     */
+    public long backoffMillis(int attempt) {
+        MailProperties.Retry retry = mailProperties.getRetry();
+        int shift = Math.min(Math.max(attempt - 1, 0), 30);
+        long ceiling = Math.min(retry.getBaseDelayMillis() << shift, retry.getMaxDelayMillis());
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /**
+     * Run the task after delayMillis; it must not block, as it runs on the wheel's ticker thread
+     */
+    public void schedule(long delayMillis, Runnable task) {
+        scheduled.increment();
+        wheel.schedule(task, delayMillis);
+    }
+
+    public long getPending() {
+        return wheel.getPending();
+    }
+}
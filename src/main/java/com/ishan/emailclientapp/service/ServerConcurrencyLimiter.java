@@ -0,0 +1,160 @@
+package com.ishan.emailclientapp.service;
+
+import com.ishan.emailclientapp.config.MailProperties;
+import com.ishan.emailclientapp.config.MailProperties.SmtpServer;
+import com.ishan.emailclientapp.config.SmtpConnectionPoolFactory;
+import com.ishan.emailclientapp.model.Priority;
+import jakarta.annotation.PostConstruct;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.mail.Transport;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-server concurrency limits, one semaphore per sub-pool sized to its connection capacity.
+ * Senders hold a permit while they use a connection, so waiting happens here
+ * (cheap for virtual threads) instead of inside the pool's borrow queue.
+ * Waiters queue by priority lane: freed slots go to the lanes by weight, and a share of each server's
+ * slots is held back for TRANSACTIONAL (see PrioritySemaphore).
+ */
+@Service
+public class ServerConcurrencyLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ServerConcurrencyLimiter.class);
+
+    @Autowired
+    private GenericKeyedObjectPool<String, Transport> smtpConnectionPool;
+
+    @Autowired
+    private SmtpConnectionPoolFactory smtpConnectionPoolFactory;
+
+    @Autowired
+    private MailProperties mailProperties;
+
+    private final Map<String, PrioritySemaphore> permits = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> contended = new ConcurrentHashMap<>();
+    private volatile boolean adaptive;
+
+    @PostConstruct
+    public void init() {
+        for (SmtpServer server : smtpConnectionPoolFactory.getServers()) {
+            MailProperties.Lanes lanes = mailProperties.getLanes();
+            permits.put(server.getName(), new PrioritySemaphore(poolCapacityPerServer(),
+                    new WeightedLanes(lanes), lanes.getReservedShare()));
+            contended.put(server.getName(), new LongAdder());
+        }
+    }
+
+    /**
+     * Hand the limits to an adaptive controller; the pool sync then only caps them at pool capacity
+     */
+    public void setAdaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+    }
+
+    /**
+     * Follow the live pool configuration so the limits never drift from the real connection capacity
+     */
+    @Scheduled(fixedDelay = 5000)
+    public void syncWithPool() {
+        int capacity = poolCapacityPerServer();
+        permits.forEach((server, semaphore) -> {
+            if (semaphore.getLimit() > capacity || (!adaptive && semaphore.getLimit() != capacity)) {
+                logger.info("Resizing concurrency limit of {} from {} to {}", server, semaphore.getLimit(), capacity);
+                semaphore.setLimit(capacity);
+            }
+        });
+    }
+
+    public boolean acquire(String server, long timeoutMillis) throws InterruptedException {
+        return acquire(server, Priority.NORMAL, timeoutMillis);
+    }
+
+    public boolean acquire(String server, Priority lane, long timeoutMillis) throws InterruptedException {
+        PrioritySemaphore semaphore = semaphore(server);
+        if (semaphore.tryAcquire(lane)) {
+            return true;
+        }
+        contended.get(server).increment();
+        return semaphore.tryAcquire(lane, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Set a server's limit, clamped to [1, pool capacity per server]
+     *
+     * @return the limit applied
+     */
+    public int setLimit(String server, int limit) {
+        int clamped = Math.max(1, Math.min(limit, maxLimit()));
+        semaphore(server).setLimit(clamped);
+        return clamped;
+    }
+
+    /**
+     * Highest limit a server can have: its sub-pool's connection capacity
+     */
+    public int maxLimit() {
+        return poolCapacityPerServer();
+    }
+
+    /**
+     * Acquires that found no free permit since the last call
+     */
+    public long drainContended(String server) {
+        return contended.get(server).sumThenReset();
+    }
+
+    public void release(String server) {
+        semaphore(server).release();
+    }
+
+    public int available(String server) {
+        return Math.max(0, semaphore(server).availablePermits());
+    }
+
+    public int inFlight(String server) {
+        return semaphore(server).inUse();
+    }
+
+    public int waiting(String server) {
+        return semaphore(server).getQueueLength();
+    }
+
+    public int waiting(String server, Priority lane) {
+        return semaphore(server).getQueueLength(lane);
+    }
+
+    public int getLimit(String server) {
+        return semaphore(server).getLimit();
+    }
+
+    /**
+     * Total concurrent sends the pool can serve: the per-server limits, capped by the pool's maxTotal
+     */
+    public int totalCapacity() {
+        int sum = permits.values().stream().mapToInt(PrioritySemaphore::getLimit).sum();
+        int maxTotal = smtpConnectionPool.getMaxTotal();
+        return maxTotal < 0 ? sum : Math.min(sum, maxTotal);
+    }
+
+    private int poolCapacityPerServer() {
+        int perKey = smtpConnectionPool.getMaxTotalPerKey();
+        return perKey < 0 ? Math.max(smtpConnectionPool.getMaxTotal(), 1) : perKey;
+    }
+
+    private PrioritySemaphore semaphore(String server) {
+        PrioritySemaphore semaphore = permits.get(server);
+        if (semaphore == null) {
+            throw new IllegalArgumentException("Unknown SMTP server: " + server);
+        }
+        return semaphore;
+    }
+}
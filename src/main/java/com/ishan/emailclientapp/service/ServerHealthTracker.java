@@ -0,0 +1,179 @@
+package com.ishan.emailclientapp.service;
+
+import com.ishan.emailclientapp.config.MailProperties;
+import com.ishan.emailclientapp.config.MailProperties.SmtpServer;
+import com.ishan.emailclientapp.config.SmtpConnectionPoolFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-server latency EWMA and outlier ejection.
+ * A server with consecutiveFailures server-side failures in a row (4xx, dropped connections,
+ * failed validation) is ejected for an exponentially growing period. Once that expires, a single
+ * probe request is let through (half-open): success restores the server and refills its idle
+ * connections in the background, failure ejects it again.
+ */
+@Service
+public class ServerHealthTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(ServerHealthTracker.class);
+
+    @Autowired
+    private SmtpConnectionPoolFactory smtpConnectionPoolFactory;
+
+    @Autowired
+    private MailProperties mailProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PoolWarmer poolWarmer;
+
+    private final Map<String, ServerHealth> health = new ConcurrentHashMap<>();
+
+    enum State { HEALTHY, EJECTED, PROBING }
+
+    private static final class ServerHealth {
+        volatile double latencyNanos;
+        volatile State state = State.HEALTHY;
+        volatile int consecutiveFailures;
+        volatile int ejections;
+        long ejectedAt;
+        long ejectedUntil;
+        long probeDeadline;
+    }
+
+    @PostConstruct
+    public void init() {
+        for (SmtpServer server : smtpConnectionPoolFactory.getServers()) {
+            ServerHealth serverHealth = new ServerHealth();
+            health.put(server.getName(), serverHealth);
+            Gauge.builder("smtp.server.latency.ewma", serverHealth, h -> h.latencyNanos / 1_000_000.0)
+                    .description("Smoothed send latency used for routing").tag("server", server.getName())
+                    .baseUnit("milliseconds").register(meterRegistry);
+            Gauge.builder("smtp.server.ejected", serverHealth, h -> h.state == State.HEALTHY ? 0 : 1)
+                    .description("1 while the server is ejected or being probed").tag("server", server.getName())
+                    .register(meterRegistry);
+        }
+    }
+
+    public boolean isHealthy(String server) {
+        return health(server).state == State.HEALTHY;
+    }
+
+    /**
+     * Smoothed send latency in nanoseconds, 0 until the first sample
+     */
+    public double latency(String server) {
+        return health(server).latencyNanos;
+    }
+
+    /**
+     * Claim the half-open probe of an ejected server whose ejection has expired.
+     * Only one caller gets it until the probe reports or times out.
+     */
+    public boolean tryProbe(String server) {
+        ServerHealth h = health(server);
+        if (h.state == State.HEALTHY) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (h) {
+            boolean expired = h.state == State.EJECTED ? now >= h.ejectedUntil : now >= h.probeDeadline;
+            if (!expired) {
+                return false;
+            }
+            h.state = State.PROBING;
+            h.probeDeadline = now + mailProperties.getRouting().getProbeTimeoutMillis();
+        }
+        logger.info("Probing ejected SMTP server {}", server);
+        return true;
+    }
+
+    public void recordSuccess(String server, long nanos) {
+        ServerHealth h = health(server);
+        updateLatency(h, nanos);
+        if (h.state == State.HEALTHY && h.consecutiveFailures == 0 && h.ejections == 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        boolean restored = false;
+        synchronized (h) {
+            h.consecutiveFailures = 0;
+            if (h.state != State.HEALTHY) {
+                h.state = State.HEALTHY;
+                restored = true;
+            } else if (now - h.ejectedAt > mailProperties.getRouting().getMaxEjectionMillis()) {
+                // Healthy for a full max ejection period: forget earlier ejections
+                h.ejections = 0;
+            }
+        }
+        if (restored) {
+            logger.info("SMTP server {} restored after probe, refilling its idle connections", server);
+            poolWarmer.refill(server);
+        }
+    }
+
+    /**
+     * Record a server-side failure (4xx, dropped connection, failed validation)
+     *
+     * @param nanos latency of the failed attempt, or 0 if there was no reply
+     */
+    public void recordFailure(String server, long nanos) {
+        ServerHealth h = health(server);
+        if (nanos > 0) {
+            updateLatency(h, nanos);
+        }
+        MailProperties.Routing routing = mailProperties.getRouting();
+        synchronized (h) {
+            h.consecutiveFailures++;
+            if (h.state == State.PROBING) {
+                eject(server, h, routing);
+            } else if (h.state == State.HEALTHY && h.consecutiveFailures >= routing.getConsecutiveFailures()
+                    && canEject(routing)) {
+                eject(server, h, routing);
+            }
+        }
+    }
+
+    private void eject(String server, ServerHealth h, MailProperties.Routing routing) {
+        long now = System.currentTimeMillis();
+        int shift = Math.min(h.ejections, 20);
+        long duration = Math.min(routing.getBaseEjectionMillis() << shift, routing.getMaxEjectionMillis());
+        h.ejections++;
+        h.ejectedAt = now;
+        h.ejectedUntil = now + duration;
+        h.consecutiveFailures = 0;
+        h.state = State.EJECTED;
+        logger.warn("Ejected SMTP server {} for {} ms (ejection #{})", server, duration, h.ejections);
+    }
+
+    private boolean canEject(MailProperties.Routing routing) {
+        long unhealthy = health.values().stream().filter(h -> h.state != State.HEALTHY).count();
+        return (unhealthy + 1) * 100 <= (long) routing.getMaxEjectedPercent() * health.size();
+    }
+
+    private void updateLatency(ServerHealth h, long nanos) {
+        double current = h.latencyNanos;
+        double decay = mailProperties.getRouting().getLatencyDecay();
+        // Racy read-modify-write: a lost sample only nudges a smoothed value
+        h.latencyNanos = current == 0 ? nanos : current + (nanos - current) * decay;
+    }
+
+    private ServerHealth health(String server) {
+        ServerHealth h = health.get(server);
+        if (h == null) {
+            throw new IllegalArgumentException("Unknown SMTP server: " + server);
+        }
+        return h;
+    }
+}
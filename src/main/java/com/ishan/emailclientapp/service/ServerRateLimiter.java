@@ -0,0 +1,179 @@
+package com.ishan.emailclientapp.service;
+
+import com.ishan.emailclientapp.config.MailProperties.SmtpServer;
+import com.ishan.emailclientapp.config.SmtpConnectionPoolFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-server provider quotas (maxMessagesPerSecond, maxMessagesPerDay) as lock-free token buckets.
+ * Every message reserves from each bucket before it is sent and waits out the reservation,
+ * so a server is paced instead of tripping its provider's 421s and temporary blocks.
+ * The per-second bucket counts messages (DATA transfers); the daily bucket counts recipients,
+ * as providers do, so a merged envelope spends one daily token per RCPT TO.
+ * The daily bucket holds an hour's share of the quota and refills at the rest of the daily rate,
+ * so no rolling 24 hours can exceed the quota.
+ */
+@Service
+public class ServerRateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ServerRateLimiter.class);
+
+    private static final long SECONDS_PER_DAY = 86_400;
+
+    @Autowired
+    private SmtpConnectionPoolFactory smtpConnectionPoolFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, Limits> limits = new ConcurrentHashMap<>();
+
+    /**
+     * Buckets of one server; a null bucket means no limit
+     */
+    private record Limits(TokenBucket perSecond, TokenBucket perDay, Counter rejected) {
+    }
+
+    @PostConstruct
+    public void init() {
+        for (SmtpServer server : smtpConnectionPoolFactory.getServers()) {
+            TokenBucket perSecond = null;
+            if (server.getMaxMessagesPerSecond() > 0) {
+                long burst = server.getRateLimitBurst() > 0
+                        ? server.getRateLimitBurst()
+                        : (long) Math.ceil(server.getMaxMessagesPerSecond());
+                perSecond = new TokenBucket(server.getMaxMessagesPerSecond(), burst);
+            }
+            TokenBucket perDay = null;
+            if (server.getMaxMessagesPerDay() > 0) {
+                long quota = server.getMaxMessagesPerDay();
+                long burst = Math.max(1, quota / 24);
+                perDay = new TokenBucket(Math.max(quota - burst, 1) / (double) SECONDS_PER_DAY, burst);
+            }
+            Counter rejected = Counter.builder("smtp.ratelimit.rejected")
+                    .description("Sends refused because the server's quota would not free up in time")
+                    .tag("server", server.getName())
+                    .register(meterRegistry);
+            Limits serverLimits = new Limits(perSecond, perDay, rejected);
+            limits.put(server.getName(), serverLimits);
+            if (perSecond != null || perDay != null) {
+                Gauge.builder("smtp.ratelimit.headroom", this, limiter -> limiter.headroom(server.getName()))
+                        .description("Fraction of the tightest quota bucket still available")
+                        .tag("server", server.getName())
+                        .register(meterRegistry);
+                logger.info("Rate limits for {}: {}/s, {}/day", server.getName(),
+                        server.getMaxMessagesPerSecond(), server.getMaxMessagesPerDay());
+            }
+        }
+    }
+
+    /**
+     * Reserve one single-recipient message against the server's quotas
+     *
+     * @return nanoseconds to wait before sending, or -1 (nothing reserved) if the wait would exceed maxWaitNanos
+     */
+    public long reserve(String server, long maxWaitNanos) {
+        return reserve(server, 1, maxWaitNanos);
+    }
+
+    /**
+     * Reserve one message to the given number of recipients against the server's quotas
+     *
+     * @return nanoseconds to wait before sending, or -1 (nothing reserved) if the wait would exceed maxWaitNanos
+     */
+    public long reserve(String server, int recipients, long maxWaitNanos) {
+        Limits serverLimits = limits(server);
+        long now = System.nanoTime();
+        long wait = 0;
+        if (serverLimits.perSecond() != null) {
+            wait = serverLimits.perSecond().reserve(now, maxWaitNanos);
+            if (wait < 0) {
+                serverLimits.rejected().increment();
+                return -1;
+            }
+        }
+        if (serverLimits.perDay() != null) {
+            long dayWait = serverLimits.perDay().reserve(now, recipients, maxWaitNanos);
+            if (dayWait < 0) {
+                if (serverLimits.perSecond() != null) {
+                    serverLimits.perSecond().refund();
+                }
+                serverLimits.rejected().increment();
+                return -1;
+            }
+            wait = Math.max(wait, dayWait);
+        }
+        return wait;
+    }
+
+    /**
+     * Give back a reservation made by reserve that was never used, because nothing was sent
+     */
+    public void refund(String server, int recipients) {
+        Limits serverLimits = limits(server);
+        if (serverLimits.perSecond() != null) {
+            serverLimits.perSecond().refund();
+        }
+        if (serverLimits.perDay() != null) {
+            serverLimits.perDay().refund(recipients);
+        }
+    }
+
+    /**
+     * Nanoseconds until the server may send again, 0 if it has budget now
+     */
+    public long waitNanos(String server) {
+        Limits serverLimits = limits(server);
+        long now = System.nanoTime();
+        long wait = 0;
+        if (serverLimits.perSecond() != null) {
+            wait = serverLimits.perSecond().waitNanos(now);
+        }
+        if (serverLimits.perDay() != null) {
+            wait = Math.max(wait, serverLimits.perDay().waitNanos(now));
+        }
+        return wait;
+    }
+
+    /**
+     * Most recipients the daily quota can take in one go (its hour's share), so merged envelopes can be cut
+     * to fit it; Integer.MAX_VALUE for a server without a daily quota
+     */
+    public int maxRecipientsAtOnce(String server) {
+        TokenBucket perDay = limits(server).perDay();
+        return perDay == null ? Integer.MAX_VALUE : (int) Math.min(perDay.getCapacity(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Fraction of the tightest bucket still available, 1 for an unlimited server
+     */
+    public double headroom(String server) {
+        Limits serverLimits = limits(server);
+        long now = System.nanoTime();
+        double headroom = 1.0;
+        for (TokenBucket bucket : new TokenBucket[] {serverLimits.perSecond(), serverLimits.perDay()}) {
+            if (bucket != null) {
+                headroom = Math.min(headroom, bucket.available(now) / bucket.getCapacity());
+            }
+        }
+        return headroom;
+    }
+
+    private Limits limits(String server) {
+        Limits serverLimits = limits.get(server);
+        if (serverLimits == null) {
+            throw new IllegalArgumentException("Unknown SMTP server: " + server);
+        }
+        return serverLimits;
+    }
+}
@@ -0,0 +1,130 @@
+package com.ishan.emailclientapp.service;
+
+import com.ishan.emailclientapp.config.MailProperties.SmtpServer;
+import com.ishan.emailclientapp.config.SmtpConnectionPoolFactory;
+import com.ishan.emailclientapp.model.Priority;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPool;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import jakarta.mail.Transport;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters for the SMTP hot path and the connection pool internals
+ */
+@Component
+public class SmtpMetrics {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private GenericKeyedObjectPool<String, Transport> smtpConnectionPool;
+
+    @Autowired
+    private SmtpConnectionPoolFactory smtpConnectionPoolFactory;
+
+    private final Map<String, Timer> borrowWaitTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> sendTimers = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Counter>> replyCounters = new ConcurrentHashMap<>();
+    private final Map<Priority, Timer> laneWaitTimers = new ConcurrentHashMap<>();
+    private DistributionSummary messageSize;
+    private DistributionSummary envelopeRecipients;
+
+    @PostConstruct
+    public void init() {
+        messageSize = DistributionSummary.builder("smtp.message.size")
+                .description("Approximate payload size of sent messages")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        envelopeRecipients = DistributionSummary.builder("smtp.envelope.recipients")
+                .description("RCPT TO addresses per DATA transfer")
+                .register(meterRegistry);
+
+        GenericKeyedObjectPool<String, Transport> pool = smtpConnectionPool;
+        FunctionCounter.builder("smtp.pool.created", pool, GenericKeyedObjectPool::getCreatedCount)
+                .description("Connections created by the pool").register(meterRegistry);
+        FunctionCounter.builder("smtp.pool.destroyed", pool, GenericKeyedObjectPool::getDestroyedCount)
+                .description("Connections destroyed by the pool").register(meterRegistry);
+        FunctionCounter.builder("smtp.pool.destroyed.validation", pool, GenericKeyedObjectPool::getDestroyedByBorrowValidationCount)
+                .description("Connections destroyed because borrow validation failed").register(meterRegistry);
+        FunctionCounter.builder("smtp.pool.borrowed", pool, GenericKeyedObjectPool::getBorrowedCount)
+                .description("Connections borrowed from the pool").register(meterRegistry);
+        FunctionCounter.builder("smtp.pool.returned", pool, GenericKeyedObjectPool::getReturnedCount)
+                .description("Connections returned to the pool").register(meterRegistry);
+        Gauge.builder("smtp.pool.borrow.wait.mean", pool, p -> p.getMeanBorrowWaitDuration().toNanos() / 1_000_000.0)
+                .description("Mean borrow wait reported by the pool").baseUnit("milliseconds").register(meterRegistry);
+        Gauge.builder("smtp.pool.borrow.wait.max", pool, p -> p.getMaxBorrowWaitDuration().toNanos() / 1_000_000.0)
+                .description("Max borrow wait reported by the pool").baseUnit("milliseconds").register(meterRegistry);
+        Gauge.builder("smtp.pool.waiters", pool, GenericKeyedObjectPool::getNumWaiters)
+                .description("Threads waiting to borrow a connection").register(meterRegistry);
+
+        for (SmtpServer server : smtpConnectionPoolFactory.getServers()) {
+            String name = server.getName();
+            Gauge.builder("smtp.pool.active", pool, p -> p.getNumActive(name))
+                    .tag("server", name).description("Borrowed connections").register(meterRegistry);
+            Gauge.builder("smtp.pool.idle", pool, p -> p.getNumIdle(name))
+                    .tag("server", name).description("Idle connections").register(meterRegistry);
+        }
+    }
+
+    public void recordBorrowWait(String server, long nanos) {
+        borrowWaitTimers.computeIfAbsent(server, name -> Timer.builder("smtp.pool.borrow.wait")
+                .description("Time spent borrowing a connection, including validation")
+                .tag("server", name)
+                .publishPercentileHistogram()
+                .register(meterRegistry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Record the wait for a connection slot on a server, by priority lane
+     */
+    public void recordLaneWait(Priority lane, long nanos) {
+        laneWaitTimers.computeIfAbsent(lane, key -> Timer.builder("smtp.lane.wait")
+                .description("Time spent waiting for a connection slot")
+                .tag("lane", key.name().toLowerCase(Locale.ROOT))
+                .publishPercentileHistogram()
+                .register(meterRegistry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Record one sendMessage call; replyClass is 2xx on success
+     */
+    public void recordSend(String server, long nanos, String replyClass) {
+        sendTimers.computeIfAbsent(server, name -> Timer.builder("smtp.send")
+                .description("Transport.sendMessage latency")
+                .tag("server", name)
+                .publishPercentileHistogram()
+                .register(meterRegistry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+        replyCounters.computeIfAbsent(server, name -> new ConcurrentHashMap<>())
+                .computeIfAbsent(replyClass, reply -> Counter.builder("smtp.send.replies")
+                        .description("Send outcomes by SMTP reply class")
+                        .tag("server", server)
+                        .tag("reply", reply)
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    public void recordMessageSize(long bytes) {
+        messageSize.record(bytes);
+    }
+
+    public void recordEnvelope(int recipients) {
+        envelopeRecipients.record(recipients);
+    }
+}
@@ -0,0 +1,116 @@
+package com.ishan.emailclientapp.service;
+
+import jakarta.mail.MessagingException;
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSendFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSenderFailedException;
+import org.eclipse.angus.mail.util.MailConnectException;
+
+import java.io.IOException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Extracts SMTP reply codes from Jakarta Mail exceptions
+ */
+public final class SmtpReplies {
+
+    public static final int UNKNOWN = -1;
+
+    private SmtpReplies() {
+    }
+
+    /**
+     * The SMTP reply code carried by the exception or anything it wraps, or UNKNOWN
+     */
+    public static int replyCode(Throwable error) {
+        Throwable current = error;
+        for (int depth = 0; current != null && depth < 10; depth++) {
+            if (current instanceof SMTPSendFailedException e) {
+                return e.getReturnCode();
+            }
+            if (current instanceof SMTPAddressFailedException e) {
+                return e.getReturnCode();
+            }
+            if (current instanceof SMTPSenderFailedException e) {
+                return e.getReturnCode();
+            }
+            Throwable next = current instanceof MessagingException me ? me.getNextException() : null;
+            current = next != null ? next : current.getCause();
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * True when the failure is a network problem rather than an SMTP reply, or our own message content
+     */
+    public static boolean isConnectionFailure(Throwable error) {
+        Throwable current = error;
+        for (int depth = 0; current != null && depth < 10; depth++) {
+            if (current instanceof MessageContentException) {
+                return false;
+            }
+            if (current instanceof MailConnectException || current instanceof IOException) {
+                return true;
+            }
+            Throwable next = current instanceof MessagingException me ? me.getNextException() : null;
+            current = next != null ? next : current.getCause();
+        }
+        return false;
+    }
+
+    /**
+     * True when reading the message's own content failed (see MessageContentException)
+     */
+    public static boolean isContentFailure(Throwable error) {
+        Throwable current = error;
+        for (int depth = 0; current != null && depth < 10; depth++) {
+            if (current instanceof MessageContentException) {
+                return true;
+            }
+            Throwable next = current instanceof MessagingException me ? me.getNextException() : null;
+            current = next != null ? next : current.getCause();
+        }
+        return false;
+    }
+
+    /**
+     * For a failure of Transport.sendMessage: true when the connection itself is gone, so the message is worth
+     * one more try on a fresh connection. That is a 421, or a failure without a reply that left the transport
+     * disconnected; any other reply came from a working connection, and a content failure would fail again.
+     *
+     * @param connected whether the transport is still connected, only asked when there was no reply
+     */
+    public static boolean isConnectionLost(Throwable error, BooleanSupplier connected) {
+        int code = replyCode(error);
+        if (code == 421) {
+            return true;
+        }
+        if (code != UNKNOWN || isContentFailure(error)) {
+            return false;
+        }
+        return !connected.getAsBoolean();
+    }
+
+    /**
+     * For a failure of Transport.sendMessage: true when trying again later may succeed (4xx, no reply,
+     * network failure); 5xx replies and unreadable message content are permanent
+     */
+    public static boolean isTransient(Throwable error) {
+        if (isContentFailure(error)) {
+            return false;
+        }
+        int code = replyCode(error);
+        return (code >= 400 && code < 500) || code == UNKNOWN || isConnectionFailure(error);
+    }
+
+    /**
+     * Reply class used as a metric tag: 2xx, 4xx, 5xx, connection or other
+     */
+    public static String replyClass(Throwable error) {
+        int code = replyCode(error);
+        if (code > 0) {
+            return (code / 100) + "xx";
+        }
+        return isConnectionFailure(error) ? "connection" : "other";
+    }
+}
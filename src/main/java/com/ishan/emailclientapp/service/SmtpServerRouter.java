@@ -0,0 +1,123 @@
+package com.ishan.emailclientapp.service;
+
+import com.ishan.emailclientapp.config.MailProperties.SmtpServer;
+import com.ishan.emailclientapp.config.SmtpConnectionPoolFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks the SMTP server (pool key) a message should be sent through.
+ * Ejected servers are skipped except for their half-open probe. Among the rest, two servers are
+ * drawn at random in proportion to weight and the one with the lower expected wait wins
+ * (outstanding requests times smoothed latency, per unit of weight), so a slow upstream sheds
+ * traffic to the healthy ones without every sender stampeding to the same server.
+ * Servers whose rate limit is exhausted sit out like ejected ones, and cost rises as a server's
+ * quota drains, so traffic moves to servers with spare budget before any of them has to pace.
+ * A retry can name the server it failed on, which then sits out too unless nothing else is available.
+ */
+@Service
+public class SmtpServerRouter {
+
+    @Autowired
+    private ServerConcurrencyLimiter concurrencyLimiter;
+
+    @Autowired
+    private ServerHealthTracker healthTracker;
+
+    @Autowired
+    private ServerRateLimiter rateLimiter;
+
+    @Autowired
+    private SmtpConnectionPoolFactory smtpConnectionPoolFactory;
+
+    /** Floor on quota headroom in the cost, so a nearly drained server is avoided but still comparable */
+    private static final double MIN_HEADROOM = 0.05;
+
+    /**
+     * Select a server for the next borrow
+     */
+    public String selectServer() {
+        return selectServer(null);
+    }
+
+    /**
+     * Select a server, leaving out the given one (the server a retry failed on) unless nothing else can take it
+     */
+    public String selectServer(String avoid) {
+        List<SmtpServer> servers = smtpConnectionPoolFactory.getServers();
+        if (servers.size() == 1) {
+            return servers.get(0).getName();
+        }
+
+        long totalWeight = 0;
+        for (SmtpServer server : servers) {
+            if (healthTracker.isHealthy(server.getName())) {
+                if (eligible(server, avoid)) {
+                    totalWeight += Math.max(server.getWeight(), 0);
+                }
+            } else if (healthTracker.tryProbe(server.getName())) {
+                return server.getName();
+            }
+        }
+
+        if (totalWeight == 0) {
+            // Nothing healthy with budget and a positive weight (besides the avoided server): fall back to every server
+            return leastCostServer(servers);
+        }
+
+        SmtpServer first = weightedPick(servers, totalWeight, avoid);
+        SmtpServer second = weightedPick(servers, totalWeight, avoid);
+        // Strictly lower cost only, so equal servers keep their weighted share
+        return cost(second) < cost(first) ? second.getName() : first.getName();
+    }
+
+    private SmtpServer weightedPick(List<SmtpServer> servers, long totalWeight, String avoid) {
+        long pick = ThreadLocalRandom.current().nextLong(totalWeight);
+        SmtpServer last = null;
+        for (SmtpServer server : servers) {
+            if (!healthTracker.isHealthy(server.getName()) || server.getWeight() <= 0 || !eligible(server, avoid)) {
+                continue;
+            }
+            last = server;
+            pick -= server.getWeight();
+            if (pick < 0) {
+                return server;
+            }
+        }
+        // A server was ejected or ran out of budget since the weights were summed
+        return last != null ? last : servers.get(0);
+    }
+
+    private boolean eligible(SmtpServer server, String avoid) {
+        return !server.getName().equals(avoid) && rateLimiter.waitNanos(server.getName()) == 0;
+    }
+
+    /**
+     * Expected wait on the server: requests ahead of this one times smoothed latency, per unit of weight,
+     * scaled up as its quota drains, plus any wait for its rate limit.
+     * Servers without latency samples yet cost as if they answered in a millisecond.
+     */
+    private double cost(SmtpServer server) {
+        String name = server.getName();
+        int outstanding = concurrencyLimiter.inFlight(name) + concurrencyLimiter.waiting(name);
+        double latency = Math.max(healthTracker.latency(name), 1_000_000);
+        double queueing = (outstanding + 1) * latency / Math.max(server.getWeight(), 1);
+        return queueing / Math.max(rateLimiter.headroom(name), MIN_HEADROOM) + rateLimiter.waitNanos(name);
+    }
+
+    private String leastCostServer(List<SmtpServer> servers) {
+        SmtpServer best = servers.get(0);
+        double bestCost = Double.MAX_VALUE;
+        for (SmtpServer server : servers) {
+            double cost = cost(server);
+            if (cost < bestCost) {
+                bestCost = cost;
+                best = server;
+            }
+        }
+        return best.getName();
+    }
+}
@@ -0,0 +1,100 @@
+package com.ishan.emailclientapp.service;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.Part;
+import jakarta.mail.internet.ContentDisposition;
+import jakarta.mail.internet.ContentType;
+import jakarta.mail.internet.MimeUtility;
+import jakarta.mail.internet.ParameterList;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Attachment part backed by a base64 file from the AttachmentStore,
+ * so sending never re-reads the content into the heap or encodes it again.
+ * Failures reading the file are MessageContentExceptions, so they are not taken for a broken connection.
+ */
+class StoredAttachmentPart extends PreEncodedPart {
+
+    private final Path encoded;
+    private final long encodedSize;
+
+    StoredAttachmentPart(Path encoded, long encodedSize, String fileName, String contentType) throws MessagingException {
+        super(contentType(contentType, fileName), disposition(fileName), "base64");
+        this.encoded = encoded;
+        this.encodedSize = encodedSize;
+    }
+
+    private static String contentType(String contentType, String fileName) throws MessagingException {
+        ContentType type = new ContentType(contentType);
+        if (fileName != null) {
+            type.setParameterList(withParameter(type.getParameterList(), "name", fileName));
+        }
+        return type.toString();
+    }
+
+    private static String disposition(String fileName) throws MessagingException {
+        ContentDisposition disposition = new ContentDisposition(Part.ATTACHMENT);
+        if (fileName != null) {
+            disposition.setParameterList(withParameter(disposition.getParameterList(), "filename", fileName));
+        }
+        return disposition.toString();
+    }
+
+    /**
+     * Set a parameter the way MimeBodyPart.setFileName does, so non-ASCII names are RFC 2231 encoded
+     * and a stored attachment gets the same headers as the same attachment sent inline
+     */
+    private static ParameterList withParameter(ParameterList parameters, String name, String value) {
+        ParameterList list = parameters == null ? new ParameterList() : parameters;
+        list.set(name, value, MimeUtility.mimeCharset(MimeUtility.getDefaultJavaCharset()));
+        return list;
+    }
+
+    @Override
+    protected InputStream getContentStream() throws MessagingException {
+        try {
+            return Files.newInputStream(encoded);
+        } catch (IOException e) {
+            throw new MessagingException("Stored attachment unavailable: " + encoded.getFileName(), unavailable(e));
+        }
+    }
+
+    @Override
+    public int getSize() {
+        return (int) Math.min(encodedSize, Integer.MAX_VALUE);
+    }
+
+    @Override
+    protected void writeContent(OutputStream os) throws IOException {
+        InputStream content;
+        try {
+            content = Files.newInputStream(encoded);
+        } catch (IOException e) {
+            throw unavailable(e);
+        }
+        // Read and write separately: only failures on the reading side are the message's fault
+        try (content) {
+            byte[] buffer = new byte[8192];
+            while (true) {
+                int read;
+                try {
+                    read = content.read(buffer);
+                } catch (IOException e) {
+                    throw unavailable(e);
+                }
+                if (read < 0) {
+                    return;
+                }
+                os.write(buffer, 0, read);
+            }
+        }
+    }
+
+    private MessageContentException unavailable(IOException cause) {
+        return new MessageContentException("Stored attachment unavailable: " + encoded.getFileName(), cause);
+    }
+}
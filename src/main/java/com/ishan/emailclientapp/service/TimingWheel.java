@@ -0,0 +1,139 @@
+package com.ishan.emailclientapp.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hashed timing wheel for large numbers of delayed tasks.
+ * Scheduling is a lock-free enqueue; a single ticker thread moves new tasks into the slot for their
+ * deadline (slot = tick mod wheel size, plus the number of full rotations left) and on every tick
+ * hands the due tasks of one slot to the executor. Each task costs O(1) to add and to expire, and
+ * deadlines are rounded up to the tick.
+ */
+public class TimingWheel {
+
+    private static final Logger logger = LoggerFactory.getLogger(TimingWheel.class);
+
+    private static final class Timeout {
+        final Runnable task;
+        final long deadlineTick;
+        long rounds;
+
+        Timeout(Runnable task, long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+    private final long tickNanos;
+    private final LinkedList<Timeout>[] wheel;
+    private final int mask;
+    private final Queue<Timeout> incoming = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pending = new AtomicLong();
+    private final Executor executor;
+    private final Thread ticker;
+    private final long startNanos;
+    private volatile boolean running = true;
+    private long tick;
+
+    /**
+     * @param tickMillis resolution of the deadlines
+     * @param wheelSize  slots per rotation, rounded up to a power of two
+     * @param executor   runs the expired tasks, so slow tasks never hold up the ticker
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(String name, long tickMillis, int wheelSize, Executor executor) {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMillis));
+        int size = Integer.highestOneBit(Math.max(wheelSize, 2) - 1) << 1;
+        this.wheel = new LinkedList[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new LinkedList<>();
+        }
+        this.mask = size - 1;
+        this.executor = executor;
+        this.startNanos = System.nanoTime();
+        this.ticker = Thread.ofPlatform().name(name).daemon().unstarted(this::run);
+        ticker.start();
+    }
+
+    /**
+     * Run the task on the executor once the delay has passed
+     */
+    public void schedule(Runnable task, long delayMillis) {
+        if (!running) {
+            throw new IllegalStateException("Timing wheel is stopped");
+        }
+        long elapsed = System.nanoTime() - startNanos + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis));
+        // Round up, so a task never fires early
+        long deadlineTick = (elapsed + tickNanos - 1) / tickNanos;
+        pending.incrementAndGet();
+        incoming.add(new Timeout(task, deadlineTick));
+    }
+
+    /**
+     * Tasks scheduled and not yet handed to the executor
+     */
+    public long getPending() {
+        return pending.get();
+    }
+
+    public void stop() {
+        running = false;
+        ticker.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            long deadline = startNanos + (tick + 1) * tickNanos;
+            long sleep = deadline - System.nanoTime();
+            if (sleep > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        return;
+                    }
+                }
+                continue;
+            }
+            tick++;
+            transferIncoming();
+            expire(wheel[(int) (tick & mask)]);
+        }
+    }
+
+    private void transferIncoming() {
+        Timeout timeout;
+        while ((timeout = incoming.poll()) != null) {
+            long due = Math.max(timeout.deadlineTick, tick);
+            timeout.rounds = (due - tick) / wheel.length;
+            wheel[(int) (due & mask)].add(timeout);
+        }
+    }
+
+    private void expire(LinkedList<Timeout> slot) {
+        Iterator<Timeout> timeouts = slot.iterator();
+        while (timeouts.hasNext()) {
+            Timeout timeout = timeouts.next();
+            if (timeout.rounds > 0) {
+                timeout.rounds--;
+                continue;
+            }
+            timeouts.remove();
+            pending.decrementAndGet();
+            try {
+                executor.execute(timeout.task);
+            } catch (RuntimeException e) {
+                logger.error("Failed to run expired task", e);
+            }
+        }
+    }
+}
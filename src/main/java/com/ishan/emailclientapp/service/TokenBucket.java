@@ -0,0 +1,92 @@
+package com.ishan.emailclientapp.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket in its GCRA form: the whole state is one theoretical arrival time,
+ * advanced by one emission interval per token with a CAS, so concurrent senders never block each other.
+ * A bucket that has been idle holds up to capacity tokens.
+ */
+public class TokenBucket {
+
+    private final long intervalNanos;
+    private final long capacity;
+    /** How far ahead of now the arrival time may run: capacity - 1 intervals */
+    private final long toleranceNanos;
+    private final AtomicLong arrival;
+
+    /**
+     * @param permitsPerSecond refill rate
+     * @param capacity         tokens available after an idle period, at least 1
+     */
+    public TokenBucket(double permitsPerSecond, long capacity) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive");
+        }
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / permitsPerSecond));
+        this.capacity = Math.max(1, capacity);
+        this.toleranceNanos = (this.capacity - 1) * intervalNanos;
+        this.arrival = new AtomicLong(System.nanoTime() - this.capacity * intervalNanos);
+    }
+
+    /**
+     * Reserve one token
+     *
+     * @return nanoseconds the caller must wait before using it, or -1 (nothing reserved) if that exceeds maxWaitNanos
+     */
+    public long reserve(long now, long maxWaitNanos) {
+        return reserve(now, 1, maxWaitNanos);
+    }
+
+    /**
+     * Reserve several tokens at once. More tokens than the capacity can never be in the bucket together,
+     * so such a reservation waits for a full bucket and takes the rest from the refill that follows.
+     *
+     * @return nanoseconds the caller must wait before using them, or -1 (nothing reserved) if that exceeds maxWaitNanos
+     */
+    public long reserve(long now, long tokens, long maxWaitNanos) {
+        long count = Math.max(1, tokens);
+        long needed = Math.min(count, capacity) - 1;
+        while (true) {
+            long current = arrival.get();
+            long start = Math.max(current, now);
+            long wait = Math.max(0, start + needed * intervalNanos - now - toleranceNanos);
+            if (wait > maxWaitNanos) {
+                return -1;
+            }
+            if (arrival.compareAndSet(current, start + count * intervalNanos)) {
+                return wait;
+            }
+        }
+    }
+
+    /**
+     * Give back a token reserved but not used
+     */
+    public void refund() {
+        refund(1);
+    }
+
+    public void refund(long tokens) {
+        arrival.addAndGet(-Math.max(1, tokens) * intervalNanos);
+    }
+
+    /**
+     * Nanoseconds until a token is available, 0 if one is available now
+     */
+    public long waitNanos(long now) {
+        return Math.max(0, arrival.get() - now - toleranceNanos);
+    }
+
+    /**
+     * Tokens available now
+     */
+    public double available(long now) {
+        long ahead = Math.max(0, arrival.get() - now);
+        return Math.max(0, (double) (toleranceNanos + intervalNanos - ahead) / intervalNanos);
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+}
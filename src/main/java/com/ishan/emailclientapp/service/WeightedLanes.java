@@ -0,0 +1,50 @@
+package com.ishan.emailclientapp.service;
+
+import com.ishan.emailclientapp.config.MailProperties;
+import com.ishan.emailclientapp.model.Priority;
+
+import java.util.function.Predicate;
+
+/**
+ * Smooth weighted round robin over the priority lanes: every pick credits each eligible lane with its
+ * weight and serves the one with the most credit, so busy lanes are served in proportion to their
+ * weights, interleaved rather than in bursts, and an idle lane's share goes to the busy ones.
+ */
+public class WeightedLanes {
+
+    private static final Priority[] LANES = Priority.values();
+
+    private final int[] weights = new int[LANES.length];
+    private final long[] credit = new long[LANES.length];
+
+    public WeightedLanes(MailProperties.Lanes lanes) {
+        // Every lane keeps a weight of at least 1, so none can starve
+        weights[Priority.TRANSACTIONAL.ordinal()] = Math.max(1, lanes.getTransactionalWeight());
+        weights[Priority.NORMAL.ordinal()] = Math.max(1, lanes.getNormalWeight());
+        weights[Priority.BULK.ordinal()] = Math.max(1, lanes.getBulkWeight());
+    }
+
+    /**
+     * The lane to serve next
+     *
+     * @return null if no lane is eligible
+     */
+    public synchronized Priority next(Predicate<Priority> eligible) {
+        int best = -1;
+        long total = 0;
+        for (int i = 0; i < LANES.length; i++) {
+            if (eligible.test(LANES[i])) {
+                credit[i] += weights[i];
+                total += weights[i];
+                if (best < 0 || credit[i] > credit[best]) {
+                    best = i;
+                }
+            }
+        }
+        if (best < 0) {
+            return null;
+        }
+        credit[best] -= total;
+        return LANES[best];
+    }
+}
@@ -0,0 +1,64 @@
+package com.ishan.emailclientapp;
+
+import com.ishan.emailclientapp.model.Priority;
+import com.ishan.emailclientapp.service.AdaptiveConcurrencyController;
+import com.ishan.emailclientapp.service.ServerConcurrencyLimiter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:adaptive-test",
+    "spring.mail.outbox.enabled=false",
+    "spring.mail.pool.maxConnectionsPerServer=8",
+    "spring.mail.pool.adaptive.intervalMillis=3600000",
+    "spring.mail.servers[0].name=adaptive",
+    "spring.mail.servers[0].host=localhost",
+    "spring.mail.servers[0].port=2525"
+})
+public class AdaptiveConcurrencyControllerTest {
+
+    private static final String SERVER = "adaptive";
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Autowired
+    private AdaptiveConcurrencyController controller;
+
+    @Autowired
+    private ServerConcurrencyLimiter concurrencyLimiter;
+
+    @Test
+    public void testLimitFollowsThrottlingLatencyAndDemand() throws Exception {
+        assertEquals(8, concurrencyLimiter.getLimit(SERVER), "Limits start at the pool capacity");
+
+        controller.recordSend(SERVER, 10 * MILLIS, 421);
+        controller.recordSend(SERVER, 10 * MILLIS, 250);
+        controller.adjust();
+        assertEquals(5, concurrencyLimiter.getLimit(SERVER), "421 replies should cut the limit multiplicatively");
+
+        // Healthy latency with senders queueing: additive increase (the transactional lane may take every slot)
+        for (int i = 0; i < 5; i++) {
+            assertTrue(concurrencyLimiter.acquire(SERVER, Priority.TRANSACTIONAL, 0));
+        }
+        assertFalse(concurrencyLimiter.acquire(SERVER, 1));
+        for (int i = 0; i < 5; i++) {
+            concurrencyLimiter.release(SERVER);
+        }
+        controller.recordSend(SERVER, 10 * MILLIS, 250);
+        controller.adjust();
+        assertEquals(6, concurrencyLimiter.getLimit(SERVER), "Queued acquires under healthy latency should add one");
+
+        controller.recordSend(SERVER, 100 * MILLIS, 250);
+        controller.adjust();
+        assertEquals(4, concurrencyLimiter.getLimit(SERVER), "Latency far above baseline should cut the limit");
+
+        concurrencyLimiter.syncWithPool();
+        assertEquals(4, concurrencyLimiter.getLimit(SERVER), "Pool sync must not undo adaptive limits");
+    }
+}
@@ -0,0 +1,79 @@
+package com.ishan.emailclientapp;
+
+import com.ishan.emailclientapp.model.EmailRequest;
+import com.ishan.emailclientapp.model.OutboxMessage;
+import com.ishan.emailclientapp.model.Priority;
+import com.ishan.emailclientapp.service.AdmissionService;
+import com.ishan.emailclientapp.service.OutboxService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:admission-test",
+    "spring.mail.outbox.enabled=false",
+    "spring.mail.admission.highWatermark=3",
+    "spring.mail.admission.lowWatermark=1",
+    "spring.mail.admission.maxRetryAfterSeconds=120"
+})
+public class AdmissionServiceTest {
+
+    @Autowired
+    private AdmissionService admissionService;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Test
+    public void testWatermarksAndRetryAfter() throws Exception {
+        outboxService.enqueue(Arrays.asList(request(), request()));
+        admissionService.refresh();
+        assertEquals(2, admissionService.getQueueDepth(), "Queue depth should follow the outbox");
+
+        AdmissionService.Decision rejected = admissionService.tryAdmit(2);
+        assertFalse(rejected.admitted(), "Requests past the high watermark should be rejected");
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.status(), "Nothing is draining, so delivery is stalled");
+        assertEquals(120, rejected.retryAfterSeconds());
+        assertFalse(admissionService.tryAdmit(1).admitted(), "Intake stays closed until the low watermark");
+
+        List<OutboxMessage> claimed = outboxService.claimBatch("worker-1", Priority.NORMAL);
+        outboxService.markSent(claimed.stream().map(OutboxMessage::getId).toList(), "worker-1");
+        admissionService.refresh();
+
+        assertEquals(0, admissionService.getQueueDepth());
+        assertTrue(admissionService.tryAdmit(1).admitted(), "Intake should reopen once the queue drains");
+    }
+
+    @Test
+    public void testOversizedRequestDoesNotCloseIntake() throws Exception {
+        admissionService.refresh();
+        assertEquals(0, admissionService.getQueueDepth());
+
+        AdmissionService.Decision oversized = admissionService.tryAdmit(4);
+        assertFalse(oversized.admitted(), "More than the high watermark can never fit");
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, oversized.status(), "Retrying would not help, so it is not a 503");
+        assertEquals(0, oversized.retryAfterSeconds());
+
+        assertEquals(true, admissionService.getStatistics().get("accepting"), "One oversized request must not start shedding");
+        AdmissionService.Decision next = admissionService.tryAdmit(3);
+        assertTrue(next.admitted(), "Requests that fit should still be admitted");
+        admissionService.cancel(3);
+    }
+
+    private EmailRequest request() {
+        EmailRequest request = new EmailRequest();
+        request.setFrom("test@example.com");
+        request.setTo(Arrays.asList("recipient@example.com"));
+        request.setSubject("Admission");
+        request.setBody("Body");
+        return request;
+    }
+}
@@ -0,0 +1,142 @@
+package com.ishan.emailclientapp;
+
+import com.ishan.emailclientapp.dtos.AttachmentDTO;
+import com.ishan.emailclientapp.model.EmailRequest;
+import com.ishan.emailclientapp.service.AttachmentStore;
+import com.ishan.emailclientapp.service.MimeMessageBuilder;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import jakarta.mail.BodyPart;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeMultipart;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:attachment-test",
+    "spring.mail.outbox.enabled=false",
+    "spring.mail.attachments.directory=target/test-attachments",
+    "spring.mail.attachments.spillThresholdBytes=1024"
+})
+public class AttachmentStoreTest {
+
+    @Autowired
+    private AttachmentStore attachmentStore;
+
+    @Autowired
+    private MimeMessageBuilder messageBuilder;
+
+    private final Session session = Session.getInstance(new Properties());
+
+    @Test
+    public void testIdenticalContentIsStoredOnce() throws Exception {
+        byte[] content = content(4096);
+        AttachmentStore.StoredAttachment first = attachmentStore.store(new ByteArrayInputStream(content));
+        AttachmentStore.StoredAttachment second = attachmentStore.store(new ByteArrayInputStream(content.clone()));
+        assertEquals(first.contentHash(), second.contentHash());
+        assertEquals(4096, first.size());
+
+        EmailRequest request = request(new AttachmentDTO("large.bin", "application/pdf", content, null),
+                new AttachmentDTO("small.txt", "text/plain", "hi".getBytes(), null));
+        attachmentStore.externalize(request);
+        assertEquals(first.contentHash(), request.getAttachments().get(0).getContentHash());
+        assertNull(request.getAttachments().get(0).getContent(), "Spilled content should be dropped from the request");
+        assertNull(request.getAttachments().get(1).getContentHash(), "Small attachments stay inline");
+    }
+
+    @Test
+    public void testReuseRefreshesTheFileTime() throws Exception {
+        byte[] content = content(3000);
+        String hash = attachmentStore.store(new ByteArrayInputStream(content)).contentHash();
+        Path file = Paths.get("target/test-attachments", hash + ".b64");
+        FileTime old = FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(30));
+
+        // The file time is all a restarted instance has to go on
+        Files.setLastModifiedTime(file, old);
+        attachmentStore.store(new ByteArrayInputStream(content.clone()));
+        assertTrue(Files.getLastModifiedTime(file).compareTo(old) > 0, "Storing existing content should count as use");
+
+        Files.setLastModifiedTime(file, old);
+        attachmentStore.part(new AttachmentDTO("reused.bin", null, null, hash));
+        assertTrue(Files.getLastModifiedTime(file).compareTo(old) > 0, "Sending should count as use");
+    }
+
+    @Test
+    public void testStoredAttachmentRoundTrips() throws Exception {
+        byte[] content = content(100_000);
+        String hash = attachmentStore.store(new ByteArrayInputStream(content)).contentHash();
+        EmailRequest request = request(new AttachmentDTO("report.pdf", "application/pdf", null, hash),
+                new AttachmentDTO("note.txt", "text/plain", "inline".getBytes(), null));
+
+        MimeMessage built = messageBuilder.build(session, request).message();
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        built.writeTo(raw);
+
+        MimeMessage parsed = new MimeMessage(session, new ByteArrayInputStream(raw.toByteArray()));
+        MimeMultipart multipart = (MimeMultipart) parsed.getContent();
+        assertEquals(3, multipart.getCount());
+        BodyPart stored = multipart.getBodyPart(1);
+        assertEquals("report.pdf", stored.getFileName());
+        try (InputStream in = stored.getInputStream()) {
+            assertArrayEquals(content, in.readAllBytes(), "Stored attachment should decode to the original bytes");
+        }
+        assertEquals("inline", multipart.getBodyPart(2).getContent());
+    }
+
+    @Test
+    public void testNonAsciiFileNameIsEncodedLikeInline() throws Exception {
+        byte[] content = content(2048);
+        String hash = attachmentStore.store(new ByteArrayInputStream(content)).contentHash();
+        EmailRequest request = request(new AttachmentDTO("Résumé.pdf", "application/pdf", null, hash),
+                new AttachmentDTO("Résumé.pdf", "application/pdf", content, null));
+
+        MimeMessage built = messageBuilder.build(session, request).message();
+        built.saveChanges();
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        built.writeTo(raw);
+
+        MimeMessage parsed = new MimeMessage(session, new ByteArrayInputStream(raw.toByteArray()));
+        MimeMultipart multipart = (MimeMultipart) parsed.getContent();
+        BodyPart stored = multipart.getBodyPart(1);
+        BodyPart inline = multipart.getBodyPart(2);
+        assertEquals(inline.getHeader("Content-Disposition")[0], stored.getHeader("Content-Disposition")[0]);
+        assertEquals(inline.getHeader("Content-Type")[0], stored.getHeader("Content-Type")[0]);
+        assertTrue(stored.getHeader("Content-Disposition")[0].contains("filename*="), "Non-ASCII names use RFC 2231");
+        assertEquals("Résumé.pdf", stored.getFileName());
+    }
+
+    private EmailRequest request(AttachmentDTO... attachments) {
+        EmailRequest request = new EmailRequest();
+        request.setFrom("test@example.com");
+        request.setTo(Arrays.asList("recipient@example.com"));
+        request.setSubject("Attachments");
+        request.setBody("Body");
+        request.setAttachments(new ArrayList<>(List.of(attachments)));
+        return request;
+    }
+
+    private byte[] content(int size) {
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) (i * 31 + 7);
+        }
+        return content;
+    }
+}
@@ -0,0 +1,73 @@
+package com.ishan.emailclientapp;
+
+import com.ishan.emailclientapp.model.OutboxStatus;
+import com.ishan.emailclientapp.service.BulkIngestService;
+import com.ishan.emailclientapp.service.OutboxService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:bulk-ingest-test",
+    "spring.mail.outbox.enabled=false",
+    "spring.mail.outbox.batchSize=50"
+})
+public class BulkIngestServiceTest {
+
+    @Autowired
+    private BulkIngestService bulkIngestService;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Test
+    public void testNdjsonStreamIsQueuedInChunks() throws Exception {
+        long before = outboxService.countByStatus(OutboxStatus.PENDING);
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 120; i++) {
+            body.append(request("user" + i + "@example.com")).append('\n');
+            if (i == 60) {
+                body.append("{\"from\":\"test@example.com\",\"to\":[]}\n");
+            }
+        }
+
+        BulkIngestService.Result result = bulkIngestService.ingest(stream(body.toString()));
+
+        assertTrue(result.complete());
+        assertEquals(120, result.queued());
+        assertEquals(1, result.invalid());
+        assertEquals(121, result.processed());
+        assertEquals(120, outboxService.countByStatus(OutboxStatus.PENDING) - before);
+    }
+
+    @Test
+    public void testJsonArrayAndMalformedTail() throws Exception {
+        BulkIngestService.Result array = bulkIngestService.ingest(stream(
+                "[" + request("a@example.com") + "," + request("b@example.com") + "]"));
+        assertTrue(array.complete());
+        assertEquals(2, array.queued());
+
+        BulkIngestService.Result malformed = bulkIngestService.ingest(stream(
+                request("c@example.com") + "\n" + request("d@example.com") + "\n{\"from\": oops"));
+        assertFalse(malformed.complete());
+        assertNotNull(malformed.error(), "The parse error should be reported");
+        assertEquals(2, malformed.queued(), "Requests before the malformed line should still be queued");
+        assertEquals(2, malformed.processed());
+    }
+
+    private String request(String to) {
+        return "{\"from\":\"test@example.com\",\"to\":[\"" + to + "\"],\"subject\":\"Stream\",\"body\":\"Body\"}";
+    }
+
+    private InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,109 @@
+package com.ishan.emailclientapp;
+
+import com.ishan.emailclientapp.controller.EmailController;
+import com.ishan.emailclientapp.model.EmailRequest;
+import com.ishan.emailclientapp.model.EmailResponse;
+import com.ishan.emailclientapp.service.BulkJob;
+import com.ishan.emailclientapp.service.BulkJobService;
+import com.ishan.emailclientapp.smtp.FakeSmtpServer;
+import com.ishan.emailclientapp.smtp.FakeSmtpServer.Fault;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class BulkJobServiceTest {
+
+    /** Refuses the first two RCPT TOs it sees for good */
+    private static final FakeSmtpServer server = new FakeSmtpServer(0).inject(Fault.reply("RCPT", 550, 1.0).times(2));
+
+    @Autowired
+    private EmailController emailController;
+
+    @Autowired
+    private BulkJobService bulkJobService;
+
+    @DynamicPropertySource
+    static void smtpProperties(DynamicPropertyRegistry registry) throws IOException {
+        server.start();
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:bulk-job-test");
+        registry.add("spring.mail.outbox.workers", () -> "1");
+        registry.add("spring.mail.outbox.pollIntervalMillis", () -> "50");
+        registry.add("spring.mail.pool.warmup.enabled", () -> "false");
+        registry.add("spring.mail.servers[0].name", () -> "jobs");
+        registry.add("spring.mail.servers[0].host", () -> "localhost");
+        registry.add("spring.mail.servers[0].port", server::getPort);
+        registry.add("spring.mail.servers[0].startTls", () -> "false");
+        registry.add("spring.mail.servers[0].username", () -> "user");
+        registry.add("spring.mail.servers[0].password", () -> "secret");
+    }
+
+    @AfterAll
+    public static void stopServer() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void testBulkJobReportsPositionsThatFailed() throws Exception {
+        List<EmailRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            requests.add(request("user" + i + "@example.com"));
+        }
+        // Merged into one envelope, so the second refusal hits position 1 and its Bcc still gets the message
+        requests.get(1).setBcc(List.of("copy1@example.com"));
+        requests.get(2).setSubject(null);
+        // The last position too, so it has no outbox row to rebuild the size from
+        requests.get(5).setSubject(null);
+
+        ResponseEntity<EmailResponse> response = emailController.sendBulkEmails(requests, null);
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode(), "Bulk sends should return before delivery");
+        String jobId = response.getBody().getMessageId();
+        assertNotNull(jobId);
+        assertEquals("/api/email/jobs/" + jobId, response.getHeaders().getLocation().toString());
+
+        BulkJob job = bulkJobService.find(jobId);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!job.progress().done() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        BulkJob.Progress progress = job.progress();
+        assertTrue(progress.done(), "Every queued request should settle");
+        assertEquals(6, progress.total());
+        assertEquals(2, progress.sent());
+        assertEquals(List.of(0), job.positions(BulkJob.Status.FAILED), "The refused recipient should be reported by position");
+        assertEquals(List.of(1), job.positions(BulkJob.Status.PARTIAL), "A position that reached its Bcc is not failed");
+        assertEquals(Map.of(1, List.of("user1@example.com")), job.undelivered());
+        assertEquals(List.of(2, 5), job.positions(BulkJob.Status.INVALID));
+
+        // A job no longer in memory is rebuilt from its outbox rows
+        bulkJobService.discard(jobId);
+        BulkJob rebuilt = bulkJobService.find(jobId);
+        assertEquals(progress, rebuilt.progress(), "Trailing invalid positions should survive the rebuild");
+        assertEquals(List.of(2, 5), rebuilt.positions(BulkJob.Status.INVALID));
+        assertEquals(BulkJob.Status.FAILED, rebuilt.get(0));
+        assertEquals(job.undelivered(), rebuilt.undelivered(), "Missed recipients should survive the rebuild");
+        assertNull(bulkJobService.find("no-such-job"));
+    }
+
+    private EmailRequest request(String to) {
+        EmailRequest request = new EmailRequest();
+        request.setFrom("campaign@example.com");
+        request.setTo(List.of(to));
+        request.setSubject("Bulk job");
+        request.setBody("Body");
+        return request;
+    }
+}
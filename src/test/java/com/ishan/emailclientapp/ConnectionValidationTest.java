@@ -0,0 +1,120 @@
+package com.ishan.emailclientapp;
+
+import com.ishan.emailclientapp.model.EmailRequest;
+import com.ishan.emailclientapp.service.EmailService;
+import com.ishan.emailclientapp.smtp.FakeSmtpServer;
+import com.ishan.emailclientapp.smtp.FakeSmtpServer.Fault;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPool;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import jakarta.mail.Transport;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class ConnectionValidationTest {
+
+    private static final String SERVER = "check";
+
+    private static final FakeSmtpServer server = new FakeSmtpServer(0).credentials("user", "secret");
+
+    @Autowired
+    private GenericKeyedObjectPool<String, Transport> smtpConnectionPool;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EmailService emailService;
+
+    @DynamicPropertySource
+    static void smtpProperties(DynamicPropertyRegistry registry) throws IOException {
+        server.start();
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:validation-test");
+        registry.add("spring.mail.outbox.enabled", () -> "false");
+        registry.add("spring.mail.pool.validationIdleMillis", () -> "200");
+        registry.add("spring.mail.pool.warmup.enabled", () -> "false");
+        registry.add("spring.mail.servers[0].name", () -> SERVER);
+        registry.add("spring.mail.servers[0].host", () -> "localhost");
+        registry.add("spring.mail.servers[0].port", server::getPort);
+        registry.add("spring.mail.servers[0].username", () -> "user");
+        registry.add("spring.mail.servers[0].password", () -> "secret");
+        registry.add("spring.mail.servers[0].startTls", () -> "false");
+        registry.add("spring.mail.servers[0].maxMessagesPerConnection", () -> "3");
+    }
+
+    @AfterAll
+    public static void stopServer() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void testRecentlyUsedConnectionsSkipTheNoop() throws Exception {
+        smtpConnectionPool.clear(SERVER);
+        Transport created = smtpConnectionPool.borrowObject(SERVER);
+        assertTrue(created.isConnected(), "create() should hand out a connected transport");
+        smtpConnectionPool.returnObject(SERVER, created);
+
+        double trusted = validations("trusted");
+        Transport reused = smtpConnectionPool.borrowObject(SERVER);
+        assertSame(created, reused);
+        assertEquals(trusted + 1, validations("trusted"), "A connection returned just now should be trusted");
+        smtpConnectionPool.returnObject(SERVER, reused);
+
+        Thread.sleep(300);
+        double noops = validations("success");
+        Transport idle = smtpConnectionPool.borrowObject(SERVER);
+        assertSame(created, idle);
+        assertEquals(noops + 1, validations("success"), "An idle connection should be checked with a NOOP");
+        smtpConnectionPool.returnObject(SERVER, idle);
+
+        Thread.sleep(300);
+        int connections = server.getAcceptedConnections();
+        server.inject(Fault.drop("NOOP", 1.0).times(1));
+        Transport replaced = smtpConnectionPool.borrowObject(SERVER);
+        assertNotSame(created, replaced, "A connection that fails its NOOP should be replaced");
+        assertEquals(connections + 1, server.getAcceptedConnections());
+        smtpConnectionPool.returnObject(SERVER, replaced);
+    }
+
+    @Test
+    public void testConnectionsAreRotatedAfterMaxMessages() throws Exception {
+        long received = server.getReceivedCount();
+        long destroyed = smtpConnectionPool.getDestroyedCount();
+        for (int i = 0; i < 7; i++) {
+            assertTrue(emailService.sendEmail(request("rotate" + i + "@example.com")));
+        }
+        assertEquals(received + 7, server.getReceivedCount());
+
+        // Retired in the background after the 3rd and 6th message
+        long deadline = System.currentTimeMillis() + 5000;
+        while (smtpConnectionPool.getDestroyedCount() < destroyed + 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(destroyed + 2, smtpConnectionPool.getDestroyedCount());
+        assertTrue(smtpConnectionPool.getNumIdle(SERVER) >= 1, "Retired connections should be replaced");
+    }
+
+    private EmailRequest request(String to) {
+        EmailRequest request = new EmailRequest();
+        request.setFrom("sender@example.com");
+        request.setTo(List.of(to));
+        request.setSubject("Rotate");
+        request.setBody("Body");
+        return request;
+    }
+
+    private double validations(String outcome) {
+        Timer timer = meterRegistry.find("smtp.connection.validation").tag("server", SERVER).tag("outcome", outcome).timer();
+        return timer == null ? 0 : timer.count();
+    }
+}
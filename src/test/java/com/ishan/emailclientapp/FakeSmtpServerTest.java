@@ -0,0 +1,173 @@
+package com.ishan.emailclientapp;
+
+import com.ishan.emailclientapp.config.SmtpConnectionPoolFactory;
+import com.ishan.emailclientapp.config.SmtpSslSocketFactory;
+import com.ishan.emailclientapp.model.EmailRequest;
+import com.ishan.emailclientapp.service.BatchResult;
+import com.ishan.emailclientapp.service.BatchResult.RecipientResult;
+import com.ishan.emailclientapp.service.EmailService;
+import com.ishan.emailclientapp.smtp.FakeSmtpServer;
+import com.ishan.emailclientapp.smtp.FakeSmtpServer.Fault;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPool;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import jakarta.mail.Transport;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class FakeSmtpServerTest {
+
+    private static final FakeSmtpServer server = new FakeSmtpServer(0)
+            .enableStartTls()
+            .credentials("user", "secret")
+            .commandLatency("DATA", 2);
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private SmtpConnectionPoolFactory smtpConnectionPoolFactory;
+
+    @Autowired
+    private GenericKeyedObjectPool<String, Transport> smtpConnectionPool;
+
+    @DynamicPropertySource
+    static void smtpProperties(DynamicPropertyRegistry registry) throws IOException {
+        server.start();
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:fake-smtp-test");
+        registry.add("spring.mail.outbox.enabled", () -> "false");
+        registry.add("spring.mail.servers[0].name", () -> "fake");
+        registry.add("spring.mail.servers[0].host", () -> "localhost");
+        registry.add("spring.mail.servers[0].port", server::getPort);
+        registry.add("spring.mail.servers[0].username", () -> "user");
+        registry.add("spring.mail.servers[0].password", () -> "secret");
+        registry.add("spring.mail.servers[0].startTls", () -> "true");
+        registry.add("spring.mail.servers[0].properties[mail.smtp.starttls.required]", () -> "true");
+        registry.add("spring.mail.servers[0].properties[mail.smtp.ssl.trust]", () -> "localhost");
+    }
+
+    @AfterEach
+    public void resetServer() {
+        server.clearFaults();
+        server.clearMessages();
+    }
+
+    @AfterAll
+    public static void stopServer() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void testSendOverStartTls() {
+        assertTrue(emailService.sendEmail(request("one@example.com")), "Send through the fake server should succeed");
+
+        List<FakeSmtpServer.ReceivedMessage> messages = server.getMessages();
+        assertEquals(1, messages.size());
+        assertEquals(List.of("one@example.com"), messages.get(0).recipients());
+        assertTrue(messages.get(0).content().contains("Subject: Fake"), "Message data should be captured");
+    }
+
+    @Test
+    public void testInjectedRejection() {
+        server.inject(Fault.reply("RCPT", 550, 1.0).times(1));
+        assertFalse(emailService.sendEmail(request("rejected@example.com")), "A 550 on RCPT should fail the send");
+        assertTrue(emailService.sendEmail(request("accepted@example.com")), "The next send should go through");
+    }
+
+    @Test
+    public void testRecoveryAfterDroppedConnection() {
+        assertTrue(emailService.sendEmail(request("before@example.com")));
+        server.inject(Fault.drop("MAIL", 1.0).times(1));
+        assertTrue(emailService.sendEmail(request("dropped@example.com")), "A dropped connection should be retried on a fresh one");
+        server.inject(Fault.drop("MAIL", 1.0).times(2));
+        assertFalse(emailService.sendEmail(request("dropped-twice@example.com")), "Only one retry per message");
+        assertTrue(emailService.sendEmail(request("after@example.com")), "The pool should reconnect after a drop");
+        assertEquals(List.of("before@example.com", "dropped@example.com", "after@example.com"),
+                server.getMessages().stream().map(message -> message.recipients().get(0)).toList());
+    }
+
+    @Test
+    public void testBulkSend() {
+        long before = server.getReceivedCount();
+        List<EmailRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            requests.add(request("bulk" + i + "@example.com"));
+        }
+        assertTrue(emailService.sendBulkEmails(requests), "Every bulk message should be accepted");
+
+        // Identical content goes out as merged envelopes of at most maxRecipientsPerMessage (50)
+        List<FakeSmtpServer.ReceivedMessage> messages = server.getMessages();
+        assertEquals(messages.size(), server.getReceivedCount() - before);
+        assertTrue(messages.size() >= 10 && messages.size() < 500, "Expected merged envelopes, got " + messages.size());
+        assertEquals(500, messages.stream().mapToInt(message -> message.recipients().size()).sum());
+        assertTrue(messages.stream().allMatch(message -> message.recipients().size() <= 50));
+        assertTrue(messages.get(0).content().contains("To: undisclosed-recipients:;"),
+                "Merged recipients must not see each other");
+        assertFalse(messages.get(0).content().contains("bulk"), "No recipient address may appear in the headers");
+    }
+
+    @Test
+    public void testMergedEnvelopeReportsPerRecipient() {
+        EmailRequest other = request("other@example.com");
+        other.setSubject("Other");
+        EmailRequest withBcc = request("b@example.com");
+        withBcc.setBcc(Arrays.asList("hidden@example.com"));
+        List<EmailRequest> batch = List.of(request("a@example.com"), withBcc, request("B@Example.com"), other);
+
+        // The first RCPT of the merged envelope is rejected; the rest still get the message
+        server.inject(Fault.reply("RCPT", 550, 1.0).times(1));
+        BatchResult result = emailService.sendBatch(batch);
+
+        assertArrayEquals(new boolean[] {false, true, true, true}, result.delivered());
+        assertEquals(List.of(
+                new RecipientResult(0, "a@example.com", false),
+                new RecipientResult(1, "b@example.com", true),
+                new RecipientResult(1, "hidden@example.com", true),
+                new RecipientResult(2, "b@example.com", true),
+                new RecipientResult(3, "other@example.com", true)), result.recipients());
+
+        List<FakeSmtpServer.ReceivedMessage> messages = server.getMessages();
+        assertEquals(2, messages.size(), "One DATA per distinct content");
+        assertEquals(List.of("b@example.com", "hidden@example.com"), messages.get(0).recipients(),
+                "Duplicate addresses get a single RCPT");
+        assertEquals(List.of("other@example.com"), messages.get(1).recipients());
+        assertFalse(messages.get(0).content().contains("hidden@example.com"), "Bcc stays out of the headers");
+    }
+
+    @Test
+    public void testReconnectsResumeTlsSession() throws Exception {
+        assertTrue(emailService.sendEmail(request("first@example.com")));
+        SmtpSslSocketFactory tls = smtpConnectionPoolFactory.getSslSocketFactory("fake");
+        assertTrue(tls.getFullCount() >= 1, "The first connection needs a full handshake");
+
+        double resumed = tls.getResumedCount();
+        double full = tls.getFullCount();
+        smtpConnectionPool.clear("fake");
+        Transport first = smtpConnectionPool.borrowObject("fake");
+        Transport second = smtpConnectionPool.borrowObject("fake");
+        smtpConnectionPool.returnObject("fake", first);
+        smtpConnectionPool.returnObject("fake", second);
+        assertEquals(resumed + 2, tls.getResumedCount(), "New connections should resume the cached session");
+        assertEquals(full, tls.getFullCount());
+    }
+
+    private EmailRequest request(String to) {
+        EmailRequest request = new EmailRequest();
+        request.setFrom("sender@example.com");
+        request.setTo(Arrays.asList(to));
+        request.setSubject("Fake");
+        request.setBody("Body");
+        return request;
+    }
+}
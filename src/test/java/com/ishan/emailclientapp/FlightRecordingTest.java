@@ -0,0 +1,123 @@
+package com.ishan.emailclientapp;
+
+import com.ishan.emailclientapp.actuator.FlightRecordingEndpoint;
+import com.ishan.emailclientapp.model.EmailRequest;
+import com.ishan.emailclientapp.service.EmailService;
+import com.ishan.emailclientapp.smtp.FakeSmtpServer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.Resource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class FlightRecordingTest {
+
+    private static final FakeSmtpServer server = new FakeSmtpServer(0);
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private FlightRecordingEndpoint flightRecordingEndpoint;
+
+    @DynamicPropertySource
+    static void smtpProperties(DynamicPropertyRegistry registry) throws IOException {
+        server.start();
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:flight-recording-test");
+        registry.add("spring.mail.outbox.enabled", () -> "false");
+        registry.add("spring.mail.pool.warmup.enabled", () -> "false");
+        registry.add("spring.mail.servers[0].name", () -> "jfr");
+        registry.add("spring.mail.servers[0].host", () -> "localhost");
+        registry.add("spring.mail.servers[0].port", server::getPort);
+        registry.add("spring.mail.servers[0].startTls", () -> "false");
+        registry.add("spring.mail.servers[0].username", () -> "user");
+        registry.add("spring.mail.servers[0].password", () -> "secret");
+    }
+
+    @AfterAll
+    public static void stopServer() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void testPhasesAreRecordedAndDumped() throws Exception {
+        assertEquals(404, flightRecordingEndpoint.dump("dump").getStatus(), "Nothing to dump before a recording starts");
+
+        Map<String, Object> status = flightRecordingEndpoint.start(null, 60L).getBody();
+        assertEquals(true, status.get("running"));
+        assertEquals(60L, status.get("maxAgeSeconds"));
+        try {
+            assertTrue(emailService.sendEmail(request("first@example.com")));
+            assertTrue(emailService.sendEmail(request("second@example.com")));
+
+            WebEndpointResponse<Resource> dump = flightRecordingEndpoint.dump("dump");
+            assertEquals(200, dump.getStatus());
+            Path file = Files.createTempFile("flight-recording-test", ".jfr");
+            try (InputStream content = dump.getBody().getInputStream()) {
+                Files.copy(content, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            List<RecordedEvent> events;
+            try {
+                events = RecordingFile.readAllEvents(file);
+            } finally {
+                Files.delete(file);
+            }
+
+            assertEquals(2, count(events, "com.ishan.smtp.Borrow"));
+            assertEquals(1, count(events, "com.ishan.smtp.Connect"), "The second send should reuse the connection");
+            assertTrue(count(events, "com.ishan.smtp.Validate") >= 1, "Borrows are validated");
+            assertEquals(0, count(events, "jdk.InitialEnvironmentVariable"), "Dumps must not carry the environment");
+            assertEquals(0, count(events, "jdk.InitialSystemProperty"));
+            assertEquals(0, count(events, "jdk.JVMInformation"));
+            assertTrue(count(events, "jdk.OSInformation") > 0, "The rest of the default settings still apply");
+            List<RecordedEvent> sends = events.stream()
+                    .filter(event -> event.getEventType().getName().equals("com.ishan.smtp.Send"))
+                    .toList();
+            assertEquals(2, sends.size());
+            for (RecordedEvent send : sends) {
+                assertEquals("jfr", send.getString("server"));
+                assertEquals("2xx", send.getString("outcome"));
+                assertEquals(1, send.getInt("recipients"));
+                assertTrue(send.getLong("messageSize") > 0);
+            }
+        } finally {
+            flightRecordingEndpoint.stop();
+        }
+        assertEquals(false, flightRecordingEndpoint.status().get("running"));
+    }
+
+    @Test
+    public void testUnknownSettingsAreRejected() {
+        assertEquals(400, flightRecordingEndpoint.start("no-such-settings", null).getStatus());
+        assertEquals(false, flightRecordingEndpoint.status().get("running"));
+    }
+
+    private static long count(List<RecordedEvent> events, String name) {
+        return events.stream().filter(event -> event.getEventType().getName().equals(name)).count();
+    }
+
+    private EmailRequest request(String to) {
+        EmailRequest request = new EmailRequest();
+        request.setFrom("test@example.com");
+        request.setTo(List.of(to));
+        request.setSubject("Flight recording");
+        request.setBody("Body");
+        return request;
+    }
+}
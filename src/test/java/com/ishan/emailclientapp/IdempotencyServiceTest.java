@@ -0,0 +1,195 @@
+package com.ishan.emailclientapp;
+
+import com.ishan.emailclientapp.config.MailProperties;
+import com.ishan.emailclientapp.controller.EmailController;
+import com.ishan.emailclientapp.model.EmailRequest;
+import com.ishan.emailclientapp.model.EmailResponse;
+import com.ishan.emailclientapp.service.IdempotencyService;
+import com.ishan.emailclientapp.smtp.FakeSmtpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class IdempotencyServiceTest {
+
+    private static final FakeSmtpServer server = new FakeSmtpServer(0);
+
+    @Autowired
+    private EmailController emailController;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private MailProperties mailProperties;
+
+    @DynamicPropertySource
+    static void smtpProperties(DynamicPropertyRegistry registry) throws IOException {
+        server.start();
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:idempotency-test");
+        registry.add("spring.mail.outbox.enabled", () -> "false");
+        registry.add("spring.mail.pool.warmup.enabled", () -> "false");
+        registry.add("spring.mail.servers[0].name", () -> "idempotency");
+        registry.add("spring.mail.servers[0].host", () -> "localhost");
+        registry.add("spring.mail.servers[0].port", server::getPort);
+        registry.add("spring.mail.servers[0].startTls", () -> "false");
+        registry.add("spring.mail.servers[0].username", () -> "user");
+        registry.add("spring.mail.servers[0].password", () -> "secret");
+    }
+
+    @AfterAll
+    public static void stopServer() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void testRetryWithSameKeyIsNotSentAgain() throws Exception {
+        long before = server.getReceivedCount();
+        ResponseEntity<EmailResponse> first = emailController.sendEmail(request("retry@example.com"), "key-retry");
+        ResponseEntity<EmailResponse> second = emailController.sendEmail(request("retry@example.com"), "key-retry");
+
+        assertTrue(first.getBody().isSuccess());
+        assertNull(first.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(first.getStatusCode(), second.getStatusCode());
+        assertEquals("true", second.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(1, server.getReceivedCount() - before, "The retry should be answered without sending");
+
+        ResponseEntity<EmailResponse> other = emailController.sendEmail(request("someone-else@example.com"), "key-retry");
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, other.getStatusCode(), "A reused key with another body is a client error");
+        assertEquals(1, server.getReceivedCount() - before);
+    }
+
+    @Test
+    public void testIdenticalBodyWithoutKeyIsSentAgainUnlessOptedIn() throws Exception {
+        ResponseEntity<EmailResponse> first = emailController.sendEmailAsync(request("hash@example.com"), null);
+        ResponseEntity<EmailResponse> second = emailController.sendEmailAsync(request("hash@example.com"), null);
+        assertEquals(HttpStatus.ACCEPTED, first.getStatusCode());
+        assertNotEquals(first.getBody().getMessageId(), second.getBody().getMessageId(),
+                "Keyless callers keep their behaviour by default");
+
+        MailProperties.Idempotency settings = mailProperties.getIdempotency();
+        settings.setContentHash(true);
+        try {
+            ResponseEntity<EmailResponse> hashed = emailController.sendEmailAsync(request("opted-in@example.com"), null);
+            ResponseEntity<EmailResponse> repeat = emailController.sendEmailAsync(request("opted-in@example.com"), null);
+            assertEquals(hashed.getBody().getMessageId(), repeat.getBody().getMessageId(), "The body hash should stand in for a key");
+            assertEquals("true", repeat.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+
+            // Same body, distinct keys: the client says these are different sends
+            ResponseEntity<EmailResponse> keyed = emailController.sendEmailAsync(request("opted-in@example.com"), "key-hash");
+            assertNotEquals(hashed.getBody().getMessageId(), keyed.getBody().getMessageId());
+        } finally {
+            settings.setContentHash(false);
+        }
+    }
+
+    @Test
+    public void testDuplicateInFlightWaitsForOriginal() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        IdempotencyService.Send send = () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            try {
+                finish.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return ResponseEntity.ok(response(true, "42"));
+        };
+
+        CompletableFuture<ResponseEntity<EmailResponse>> original = CompletableFuture.supplyAsync(() -> execute("key-inflight", send));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        CompletableFuture<ResponseEntity<EmailResponse>> duplicate = CompletableFuture.supplyAsync(() -> execute("key-inflight", send));
+        Thread.sleep(100);
+        assertFalse(duplicate.isDone(), "The duplicate should wait for the original rather than run");
+        finish.countDown();
+
+        assertEquals("42", original.get(10, TimeUnit.SECONDS).getBody().getMessageId());
+        assertEquals("42", duplicate.get(10, TimeUnit.SECONDS).getBody().getMessageId());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testFailedSendIsNotRemembered() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        IdempotencyService.Send failing = () -> {
+            calls.incrementAndGet();
+            return ResponseEntity.ok(response(false, null));
+        };
+        execute("key-failed", failing);
+        execute("key-failed", failing);
+        assertEquals(2, calls.get(), "A failed send should run again on retry");
+
+        IdempotencyService.Send throwing = () -> {
+            calls.incrementAndGet();
+            throw new IOException("Outbox unavailable");
+        };
+        assertThrows(IOException.class, () -> idempotencyService.execute("test", "key-thrown", "body", throwing));
+        assertThrows(IOException.class, () -> idempotencyService.execute("test", "key-thrown", "body", throwing));
+        assertEquals(4, calls.get());
+    }
+
+    @Test
+    public void testPersistentEntriesOutliveTheCache() throws Exception {
+        MailProperties.Idempotency settings = mailProperties.getIdempotency();
+        int maxEntries = settings.getMaxEntries();
+        settings.setPersistent(true);
+        settings.setMaxEntries(1);
+        try {
+            AtomicInteger calls = new AtomicInteger();
+            IdempotencyService.Send send = () -> ResponseEntity.ok(response(true, String.valueOf(calls.incrementAndGet())));
+            execute("key-persisted", send);
+            // Pushes the first key out of memory
+            execute("key-other", send);
+
+            ResponseEntity<EmailResponse> replayed = execute("key-persisted", send);
+            assertEquals("1", replayed.getBody().getMessageId(), "The response should be read back from the database");
+            assertEquals("true", replayed.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+            assertEquals(2, calls.get());
+        } finally {
+            settings.setPersistent(false);
+            settings.setMaxEntries(maxEntries);
+        }
+    }
+
+    private ResponseEntity<EmailResponse> execute(String key, IdempotencyService.Send send) {
+        try {
+            return idempotencyService.execute("test", key, "body", send);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static EmailResponse response(boolean success, String messageId) {
+        EmailResponse response = new EmailResponse();
+        response.setSuccess(success);
+        response.setMessageId(messageId);
+        return response;
+    }
+
+    private EmailRequest request(String to) {
+        EmailRequest request = new EmailRequest();
+        request.setFrom("test@example.com");
+        request.setTo(List.of(to));
+        request.setSubject("Idempotency");
+        request.setBody("Body");
+        return request;
+    }
+}
@@ -0,0 +1,94 @@
+package com.ishan.emailclientapp;
+
+import com.ishan.emailclientapp.model.EmailRequest;
+import com.ishan.emailclientapp.service.EncodedBodyCache;
+import com.ishan.emailclientapp.service.MimeMessageBuilder;
+import com.ishan.emailclientapp.service.OutboundMessage;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import jakarta.mail.Message;
+import jakarta.mail.Session;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:mime-builder-test",
+    "spring.mail.outbox.enabled=false"
+})
+public class MimeMessageBuilderTest {
+
+    @Autowired
+    private MimeMessageBuilder builder;
+
+    @Autowired
+    private EncodedBodyCache encodedBodyCache;
+
+    private final Session session = Session.getInstance(new Properties());
+
+    @Test
+    public void testEnvelopeIncludesBccButHeadersDoNot() throws Exception {
+        EmailRequest request = request();
+        request.setCc(Arrays.asList("cc@example.com"));
+        request.setBcc(Arrays.asList("hidden@example.com"));
+
+        OutboundMessage outbound = builder.build(session, request);
+
+        List<String> envelope = Arrays.stream(outbound.recipients()).map(InternetAddress::getAddress).toList();
+        assertEquals(List.of("a@example.com", "b@example.com", "cc@example.com", "hidden@example.com"), envelope);
+        assertEquals(2, outbound.message().getRecipients(Message.RecipientType.TO).length);
+        assertEquals(1, outbound.message().getRecipients(Message.RecipientType.CC).length);
+        assertNull(outbound.message().getHeader("Bcc"), "Bcc recipients must not appear in the headers");
+    }
+
+    @Test
+    public void testSenderAddressIsCached() throws Exception {
+        OutboundMessage first = builder.build(session, request());
+        OutboundMessage second = builder.build(session, request());
+
+        assertEquals("Sender <sender@example.com>", first.message().getHeader("From", null));
+        assertEquals(first.message().getHeader("From", null), second.message().getHeader("From", null));
+        assertEquals("Subject", second.message().getSubject());
+    }
+
+    @Test
+    public void testSharedBodyIsEncodedOnce() throws Exception {
+        EmailRequest first = request();
+        first.setBody("Caf\u00e9 line that needs quoted-printable\n".repeat(20));
+        EmailRequest second = request();
+        second.setBody(new String(first.getBody()));
+        long misses = encodedBodyCache.getMisses();
+
+        MimeMessage a = builder.build(session, first).message();
+        MimeMessage b = builder.build(session, second).message();
+        assertEquals(misses + 1, encodedBodyCache.getMisses(), "Equal bodies should be encoded once");
+
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        b.writeTo(raw);
+        MimeMessage parsed = new MimeMessage(session, new ByteArrayInputStream(raw.toByteArray()));
+        assertEquals("quoted-printable", parsed.getEncoding());
+        assertEquals(first.getBody().replace("\n", "\r\n"), parsed.getContent());
+        a.saveChanges();
+        assertNotNull(b.getMessageID());
+        assertNotEquals(a.getMessageID(), b.getMessageID(), "Headers are still per message");
+    }
+
+    private EmailRequest request() {
+        EmailRequest request = new EmailRequest();
+        request.setFrom("Sender <sender@example.com>");
+        request.setTo(Arrays.asList("a@example.com", "b@example.com"));
+        request.setSubject("Subject");
+        request.setBody("Body");
+        return request;
+    }
+}
@@ -0,0 +1,59 @@
+package com.ishan.emailclientapp;
+
+import com.ishan.emailclientapp.model.EmailRequest;
+import com.ishan.emailclientapp.model.OutboxMessage;
+import com.ishan.emailclientapp.model.OutboxStatus;
+import com.ishan.emailclientapp.model.Priority;
+import com.ishan.emailclientapp.service.OutboxService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:outbox-test",
+    "spring.mail.outbox.enabled=false",
+    "spring.mail.outbox.batchSize=2",
+    "spring.mail.outbox.maxAttempts=1"
+})
+public class OutboxServiceTest {
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Test
+    public void testEnqueueClaimAndSettle() throws Exception {
+        List<Long> ids = outboxService.enqueue(Arrays.asList(request("a@example.com"), request("b@example.com"),
+                request("c@example.com")));
+        assertEquals(3, ids.size(), "Every request should get an outbox id");
+        assertEquals(3, outboxService.countByStatus(OutboxStatus.PENDING));
+
+        List<OutboxMessage> first = outboxService.claimBatch("worker-1", Priority.NORMAL);
+        List<OutboxMessage> second = outboxService.claimBatch("worker-2", Priority.NORMAL);
+        assertEquals(2, first.size(), "Claims should be limited to the batch size");
+        assertEquals(1, second.size(), "Leased rows should not be claimed twice");
+        assertEquals("c@example.com", outboxService.readRequest(second.get(0)).getTo().get(0));
+
+        outboxService.markSent(first.stream().map(OutboxMessage::getId).toList(), "worker-1");
+        outboxService.markFailed(second.stream().map(OutboxMessage::getId).toList(), "worker-2");
+
+        assertEquals(2, outboxService.countByStatus(OutboxStatus.SENT));
+        assertEquals(1, outboxService.countByStatus(OutboxStatus.FAILED));
+        assertTrue(outboxService.claimBatch("worker-1", Priority.NORMAL).isEmpty(), "Settled rows should not be claimable");
+    }
+
+    private EmailRequest request(String to) {
+        EmailRequest request = new EmailRequest();
+        request.setFrom("test@example.com");
+        request.setTo(Arrays.asList(to));
+        request.setSubject("Outbox");
+        request.setBody("Body");
+        return request;
+    }
+}
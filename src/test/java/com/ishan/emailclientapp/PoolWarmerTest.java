@@ -0,0 +1,77 @@
+package com.ishan.emailclientapp;
+
+import com.ishan.emailclientapp.actuator.PoolWarmupHealthIndicator;
+import com.ishan.emailclientapp.service.PoolWarmer;
+import com.ishan.emailclientapp.smtp.FakeSmtpServer;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPool;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import jakarta.mail.Transport;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class PoolWarmerTest {
+
+    private static final String SERVER = "warm";
+
+    // Every connection takes 300ms to greet, so serial warm-up of 4 would take over a second
+    private static final FakeSmtpServer server = new FakeSmtpServer(0)
+            .credentials("user", "secret")
+            .commandLatency("EHLO", 300);
+
+    @Autowired
+    private GenericKeyedObjectPool<String, Transport> smtpConnectionPool;
+
+    @Autowired
+    private PoolWarmer poolWarmer;
+
+    @Autowired
+    private PoolWarmupHealthIndicator warmupHealth;
+
+    @DynamicPropertySource
+    static void smtpProperties(DynamicPropertyRegistry registry) throws IOException {
+        server.start();
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:warmup-test");
+        registry.add("spring.mail.outbox.enabled", () -> "false");
+        registry.add("spring.mail.pool.minIdle", () -> "4");
+        registry.add("spring.mail.servers[0].name", () -> SERVER);
+        registry.add("spring.mail.servers[0].host", () -> "localhost");
+        registry.add("spring.mail.servers[0].port", server::getPort);
+        registry.add("spring.mail.servers[0].username", () -> "user");
+        registry.add("spring.mail.servers[0].password", () -> "secret");
+        registry.add("spring.mail.servers[0].startTls", () -> "false");
+    }
+
+    @AfterAll
+    public static void stopServer() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void testWarmUpGatesReadinessAndRefillsInParallel() throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (warmupHealth.health().getStatus() != Status.UP && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(Status.UP, warmupHealth.health().getStatus());
+        assertEquals(4, smtpConnectionPool.getNumIdle(SERVER), "Startup should connect minIdle transports");
+        assertEquals(4, server.getOpenConnections());
+
+        smtpConnectionPool.clear(SERVER);
+        long start = System.nanoTime();
+        assertEquals(4, poolWarmer.refill(SERVER).get(5, TimeUnit.SECONDS));
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals(4, smtpConnectionPool.getNumIdle(SERVER));
+        assertTrue(millis < 1000, "Refill should connect in parallel, took " + millis + " ms");
+        assertEquals(0, poolWarmer.refill(SERVER).get(), "A full idle set needs no refill");
+    }
+}
@@ -0,0 +1,149 @@
+package com.ishan.emailclientapp;
+
+import com.ishan.emailclientapp.config.MailProperties;
+import com.ishan.emailclientapp.model.EmailRequest;
+import com.ishan.emailclientapp.model.OutboxMessage;
+import com.ishan.emailclientapp.model.Priority;
+import com.ishan.emailclientapp.service.OutboxService;
+import com.ishan.emailclientapp.service.PrioritySemaphore;
+import com.ishan.emailclientapp.service.WeightedLanes;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:lanes-test",
+    "spring.mail.outbox.enabled=false",
+    "spring.mail.pool.warmup.enabled=false"
+})
+public class PriorityLanesTest {
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Test
+    public void testReservedShareIsOnlyForTransactional() throws Exception {
+        PrioritySemaphore semaphore = new PrioritySemaphore(5, new WeightedLanes(new MailProperties.Lanes()), 0.2);
+        assertEquals(1, semaphore.getReserved());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(semaphore.tryAcquire(Priority.BULK));
+        }
+        assertFalse(semaphore.tryAcquire(Priority.BULK), "Bulk must not take the reserved slot");
+        assertFalse(semaphore.tryAcquire(Priority.NORMAL, 10, TimeUnit.MILLISECONDS));
+        assertTrue(semaphore.tryAcquire(Priority.TRANSACTIONAL), "The reserved slot stays free for transactional");
+        assertEquals(0, semaphore.availablePermits());
+        assertEquals(0, semaphore.getQueueLength(), "Waiters that timed out should leave the queue");
+    }
+
+    @Test
+    public void testAcquireWaitsForARelease() throws Exception {
+        PrioritySemaphore semaphore = new PrioritySemaphore(1, new WeightedLanes(new MailProperties.Lanes()), 0.2);
+        semaphore.acquire(Priority.NORMAL);
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiter = Thread.ofVirtual().start(() -> {
+            try {
+                semaphore.acquire(Priority.BULK);
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        while (semaphore.getQueueLength(Priority.BULK) < 1) {
+            Thread.sleep(1);
+        }
+        assertFalse(acquired.await(50, TimeUnit.MILLISECONDS), "No permit is free yet");
+        semaphore.release();
+        assertTrue(acquired.await(10, TimeUnit.SECONDS));
+        waiter.join(TimeUnit.SECONDS.toMillis(10));
+        assertEquals(1, semaphore.inUse());
+
+        // An interrupted waiter leaves without holding a permit
+        Thread interrupted = Thread.ofVirtual().start(() -> {
+            try {
+                semaphore.acquire(Priority.BULK);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        while (semaphore.getQueueLength(Priority.BULK) < 1) {
+            Thread.sleep(1);
+        }
+        interrupted.interrupt();
+        interrupted.join(TimeUnit.SECONDS.toMillis(10));
+        assertEquals(0, semaphore.getQueueLength());
+        assertEquals(1, semaphore.inUse());
+    }
+
+    @Test
+    public void testFreedPermitsFollowLaneWeights() throws Exception {
+        PrioritySemaphore semaphore = new PrioritySemaphore(1, new WeightedLanes(new MailProperties.Lanes()), 0.2);
+        assertTrue(semaphore.tryAcquire(Priority.BULK));
+
+        // Bulk queued first; each waiter records its lane and passes the permit on
+        List<Priority> served = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> waiters = new ArrayList<>();
+        for (Priority lane : List.of(Priority.BULK, Priority.TRANSACTIONAL)) {
+            for (int i = 0; i < 8; i++) {
+                waiters.add(Thread.ofVirtual().start(() -> {
+                    try {
+                        if (semaphore.tryAcquire(lane, 10, TimeUnit.SECONDS)) {
+                            served.add(lane);
+                            semaphore.release();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+            }
+            while (semaphore.getQueueLength(lane) < 8) {
+                Thread.sleep(1);
+            }
+        }
+        semaphore.release();
+        for (Thread waiter : waiters) {
+            waiter.join(TimeUnit.SECONDS.toMillis(10));
+        }
+
+        assertEquals(16, served.size(), "Every waiter should be served");
+        long transactional = served.subList(0, 9).stream().filter(lane -> lane == Priority.TRANSACTIONAL).count();
+        assertEquals(8, transactional, "With weights 8:1, transactional should get 8 of the first 9 permits");
+        assertEquals(Priority.BULK, served.get(15), "Bulk still gets its share and drains last");
+    }
+
+    @Test
+    public void testOutboxClaimsOneLane() throws Exception {
+        List<EmailRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            requests.add(request("bulk" + i + "@example.com", Priority.BULK));
+        }
+        requests.add(request("reset@example.com", Priority.TRANSACTIONAL));
+        outboxService.enqueue(requests);
+
+        List<OutboxMessage> claimed = outboxService.claimBatch("worker-1", Priority.TRANSACTIONAL);
+        assertEquals(1, claimed.size(), "Only transactional rows should be claimed in the transactional lane");
+        assertEquals(Priority.TRANSACTIONAL, claimed.get(0).getPriority());
+        assertEquals("reset@example.com", outboxService.readRequest(claimed.get(0)).getTo().get(0));
+        assertEquals(3, outboxService.claimBatch("worker-1", Priority.BULK).size());
+        assertTrue(outboxService.claimBatch("worker-1", Priority.NORMAL).isEmpty());
+    }
+
+    private EmailRequest request(String to, Priority priority) {
+        EmailRequest request = new EmailRequest();
+        request.setFrom("test@example.com");
+        request.setTo(List.of(to));
+        request.setSubject("Lanes");
+        request.setBody("Body");
+        request.setPriority(priority);
+        return request;
+    }
+}
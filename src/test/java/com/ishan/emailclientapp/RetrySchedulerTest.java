@@ -0,0 +1,185 @@
+package com.ishan.emailclientapp;
+
+import com.ishan.emailclientapp.model.EmailRequest;
+import com.ishan.emailclientapp.model.OutboxMessage;
+import com.ishan.emailclientapp.model.OutboxStatus;
+import com.ishan.emailclientapp.model.Priority;
+import com.ishan.emailclientapp.repository.OutboxRepository;
+import com.ishan.emailclientapp.service.OutboxService;
+import com.ishan.emailclientapp.service.RetryScheduler;
+import com.ishan.emailclientapp.service.TimingWheel;
+import com.ishan.emailclientapp.smtp.FakeSmtpServer;
+import com.ishan.emailclientapp.smtp.FakeSmtpServer.Fault;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class RetrySchedulerTest {
+
+    /** Answers every MAIL FROM with 451, like a greylisting or overloaded provider */
+    private static final FakeSmtpServer flaky = new FakeSmtpServer(0).inject(Fault.reply("MAIL", 451, 1.0));
+    private static final FakeSmtpServer steady = new FakeSmtpServer(0);
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Autowired
+    private RetryScheduler retryScheduler;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void smtpProperties(DynamicPropertyRegistry registry) throws IOException {
+        flaky.start();
+        steady.start();
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:retry-test");
+        registry.add("spring.mail.outbox.workers", () -> "1");
+        registry.add("spring.mail.outbox.pollIntervalMillis", () -> "50");
+        registry.add("spring.mail.outbox.maxAttempts", () -> "4");
+        registry.add("spring.mail.pool.warmup.enabled", () -> "false");
+        registry.add("spring.mail.retry.baseDelayMillis", () -> "50");
+        registry.add("spring.mail.retry.maxDelayMillis", () -> "200");
+        registry.add("spring.mail.retry.tickMillis", () -> "10");
+        registry.add("spring.mail.servers[0].name", () -> "flaky");
+        registry.add("spring.mail.servers[0].host", () -> "localhost");
+        registry.add("spring.mail.servers[0].port", flaky::getPort);
+        registry.add("spring.mail.servers[0].startTls", () -> "false");
+        registry.add("spring.mail.servers[0].username", () -> "user");
+        registry.add("spring.mail.servers[0].password", () -> "secret");
+        registry.add("spring.mail.servers[1].name", () -> "steady");
+        registry.add("spring.mail.servers[1].host", () -> "localhost");
+        registry.add("spring.mail.servers[1].port", steady::getPort);
+        registry.add("spring.mail.servers[1].startTls", () -> "false");
+        registry.add("spring.mail.servers[1].username", () -> "user");
+        registry.add("spring.mail.servers[1].password", () -> "secret");
+    }
+
+    @AfterAll
+    public static void stopServers() throws IOException {
+        flaky.close();
+        steady.close();
+    }
+
+    @Test
+    public void testTimingWheelNeverFiresEarly() throws Exception {
+        int tasks = 500;
+        CountDownLatch done = new CountDownLatch(tasks);
+        ConcurrentLinkedQueue<Long> early = new ConcurrentLinkedQueue<>();
+        // 8 slots of 5ms, so most delays need several rotations
+        TimingWheel wheel = new TimingWheel("test-wheel", 5, 8, Runnable::run);
+        try {
+            for (int i = 0; i < tasks; i++) {
+                long delay = i % 250;
+                long due = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+                wheel.schedule(() -> {
+                    if (System.nanoTime() < due) {
+                        early.add(delay);
+                    }
+                    done.countDown();
+                }, delay);
+            }
+            assertTrue(done.await(5, TimeUnit.SECONDS), "Every task should fire");
+            assertTrue(early.isEmpty(), "Tasks fired early: " + early);
+            assertEquals(0, wheel.getPending());
+        } finally {
+            wheel.stop();
+        }
+    }
+
+    @Test
+    public void testBackoffIsJitteredAndCapped() {
+        for (int i = 0; i < 100; i++) {
+            assertTrue(retryScheduler.backoffMillis(1) <= 50);
+            assertTrue(retryScheduler.backoffMillis(3) <= 200);
+            assertTrue(retryScheduler.backoffMillis(40) <= 200, "Delays are capped at maxDelayMillis");
+        }
+    }
+
+    @Test
+    public void testPermanentFailuresAreNotRetried() throws Exception {
+        long failedBefore = outboxService.countByStatus(OutboxStatus.FAILED);
+        double scheduledBefore = meterRegistry.counter("smtp.retry.scheduled").count();
+        EmailRequest rejected = request("rejected@example.com");
+        rejected.setFrom("not an address");
+        outboxService.enqueue(List.of(rejected));
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (outboxService.countByStatus(OutboxStatus.FAILED) == failedBefore && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(failedBefore + 1, outboxService.countByStatus(OutboxStatus.FAILED));
+        assertEquals(scheduledBefore, meterRegistry.counter("smtp.retry.scheduled").count(),
+                "Permanent failures are not retried");
+    }
+
+    @Test
+    public void testUnreadablePayloadFailsAtOnce() throws Exception {
+        OutboxMessage corrupt = outboxRepository.save(new OutboxMessage("{not json", Priority.NORMAL, Instant.now()));
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        OutboxMessage settled = outboxRepository.findById(corrupt.getId()).orElseThrow();
+        while (settled.getStatus() != OutboxStatus.FAILED && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            settled = outboxRepository.findById(corrupt.getId()).orElseThrow();
+        }
+        // Put back for a retry, it would wait out retryDelayMillis as PENDING instead
+        assertEquals(OutboxStatus.FAILED, settled.getStatus(), "An unreadable payload is not worth retrying");
+    }
+
+    @Test
+    public void testOutboxRowsAreRetriedFromTheWheel() throws Exception {
+        List<EmailRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            requests.add(request("outbox" + i + "@example.com"));
+        }
+        long sentBefore = outboxService.countByStatus(OutboxStatus.SENT);
+        double scheduledBefore = meterRegistry.counter("smtp.retry.scheduled").count();
+        // Whichever server takes the batch fails it; each row is then retried on its own, alternating servers
+        steady.inject(Fault.reply("DATA", 451, 1.0).times(1));
+        outboxService.enqueue(requests);
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (outboxService.countByStatus(OutboxStatus.SENT) < sentBefore + 5 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(sentBefore + 5, outboxService.countByStatus(OutboxStatus.SENT));
+        assertEquals(5, recipients(steady, "outbox"));
+        assertTrue(meterRegistry.counter("smtp.retry.scheduled").count() >= scheduledBefore + 5,
+                "Every row should have gone through the timing wheel");
+    }
+
+    private long recipients(FakeSmtpServer server, String prefix) {
+        return server.getMessages().stream()
+                .flatMap(message -> message.recipients().stream())
+                .filter(recipient -> recipient.startsWith(prefix))
+                .count();
+    }
+
+    private EmailRequest request(String to) {
+        EmailRequest request = new EmailRequest();
+        request.setFrom("sender@example.com");
+        request.setTo(List.of(to));
+        request.setSubject("Retry");
+        request.setBody("Body");
+        return request;
+    }
+}
@@ -0,0 +1,67 @@
+package com.ishan.emailclientapp;
+
+import com.ishan.emailclientapp.service.ServerHealthTracker;
+import com.ishan.emailclientapp.service.SmtpServerRouter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:routing-test",
+    "spring.mail.outbox.enabled=false",
+    "spring.mail.routing.consecutiveFailures=3",
+    "spring.mail.routing.baseEjectionMillis=200",
+    "spring.mail.servers[0].name=fast",
+    "spring.mail.servers[0].host=localhost",
+    "spring.mail.servers[0].port=2525",
+    "spring.mail.servers[1].name=slow",
+    "spring.mail.servers[1].host=localhost",
+    "spring.mail.servers[1].port=2526"
+})
+public class ServerHealthTrackerTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Autowired
+    private ServerHealthTracker healthTracker;
+
+    @Autowired
+    private SmtpServerRouter router;
+
+    @Test
+    public void testSlowServerLosesTrafficAndFailingServerIsEjectedThenProbed() throws Exception {
+        healthTracker.recordSuccess("fast", 5 * MILLIS);
+        healthTracker.recordSuccess("slow", 500 * MILLIS);
+        int slowPicks = 0;
+        for (int i = 0; i < 1000; i++) {
+            slowPicks += "slow".equals(router.selectServer()) ? 1 : 0;
+        }
+        // Only a draw of slow twice keeps it: about a quarter of the picks
+        assertTrue(slowPicks < 350, "Slow server got " + slowPicks + " of 1000 picks");
+
+        for (int i = 0; i < 3; i++) {
+            healthTracker.recordFailure("slow", 0);
+        }
+        assertFalse(healthTracker.isHealthy("slow"));
+        for (int i = 0; i < 100; i++) {
+            assertEquals("fast", router.selectServer(), "Ejected servers get no traffic");
+        }
+
+        for (int i = 0; i < 3; i++) {
+            healthTracker.recordFailure("fast", 0);
+        }
+        assertTrue(healthTracker.isHealthy("fast"), "maxEjectedPercent keeps the last server in rotation");
+
+        Thread.sleep(250);
+        assertEquals("slow", router.selectServer(), "An expired ejection lets one probe through");
+        assertEquals("fast", router.selectServer(), "Only one probe at a time");
+        healthTracker.recordSuccess("slow", 5 * MILLIS);
+        assertTrue(healthTracker.isHealthy("slow"), "A successful probe restores the server");
+    }
+}
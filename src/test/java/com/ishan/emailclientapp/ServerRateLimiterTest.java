@@ -0,0 +1,161 @@
+package com.ishan.emailclientapp;
+
+import com.ishan.emailclientapp.model.EmailRequest;
+import com.ishan.emailclientapp.service.RecipientMerger;
+import com.ishan.emailclientapp.service.RecipientMerger.Envelope;
+import com.ishan.emailclientapp.service.ServerRateLimiter;
+import com.ishan.emailclientapp.service.SmtpServerRouter;
+import com.ishan.emailclientapp.service.TokenBucket;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:rate-limit-test",
+    "spring.mail.outbox.enabled=false",
+    "spring.mail.pool.warmup.enabled=false",
+    "spring.mail.servers[0].name=paced",
+    "spring.mail.servers[0].host=localhost",
+    "spring.mail.servers[0].port=2525",
+    "spring.mail.servers[0].maxMessagesPerSecond=0.5",
+    "spring.mail.servers[0].rateLimitBurst=5",
+    "spring.mail.servers[1].name=daily",
+    "spring.mail.servers[1].host=localhost",
+    "spring.mail.servers[1].port=2526",
+    "spring.mail.servers[1].maxMessagesPerDay=48",
+    "spring.mail.servers[2].name=open",
+    "spring.mail.servers[2].host=localhost",
+    "spring.mail.servers[2].port=2527",
+    "spring.mail.servers[3].name=merged",
+    "spring.mail.servers[3].host=localhost",
+    "spring.mail.servers[3].port=2528",
+    "spring.mail.servers[3].maxMessagesPerDay=240",
+    "spring.mail.servers[3].maxRecipientsPerMessage=50"
+})
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class ServerRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Autowired
+    private ServerRateLimiter rateLimiter;
+
+    @Autowired
+    private SmtpServerRouter serverRouter;
+
+    @Autowired
+    private RecipientMerger recipientMerger;
+
+    @Test
+    public void testTokenBucketBurstsThenPaces() {
+        TokenBucket bucket = new TokenBucket(10, 3);
+        long now = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, bucket.reserve(now, 0), "An idle bucket allows its capacity at once");
+        }
+        assertEquals(-1, bucket.reserve(now, 0), "An empty bucket refuses callers that cannot wait");
+        assertEquals(SECOND / 10, bucket.reserve(now, SECOND), "The next token is one interval away");
+        assertEquals(2 * SECOND / 10, bucket.waitNanos(now));
+
+        bucket.refund();
+        assertEquals(SECOND / 10, bucket.waitNanos(now));
+        assertEquals(3.0, bucket.available(now + SECOND), 1e-9, "Refills up to capacity");
+    }
+
+    /** Runs first, as it needs the merged server's daily bucket full */
+    @Test
+    @Order(1)
+    public void testMergedEnvelopeSpendsOneDailyTokenPerRecipient() {
+        // An hour's share of 240/day is 10 recipients, so envelopes are cut to 10 despite maxRecipientsPerMessage=50
+        int maxRecipients = rateLimiter.maxRecipientsAtOnce("merged");
+        assertEquals(10, maxRecipients);
+        assertEquals(Integer.MAX_VALUE, rateLimiter.maxRecipientsAtOnce("open"));
+
+        List<EmailRequest> batch = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            batch.add(request("user" + i + "@example.com"));
+        }
+        List<Envelope> envelopes = recipientMerger.merge(batch, maxRecipients);
+        assertEquals(2, envelopes.size());
+        Envelope merged = envelopes.get(0);
+        int recipients = RecipientMerger.addresses(merged.request()).size();
+        assertEquals(10, recipients);
+
+        assertEquals(0, rateLimiter.reserve("merged", recipients, 0), "A full hour's share fits at once");
+        assertEquals(0.0, rateLimiter.headroom("merged"), 0.01, "Ten recipients should spend ten tokens, not one");
+        assertEquals(-1, rateLimiter.reserve("merged", RecipientMerger.addresses(envelopes.get(1).request()).size(), SECOND),
+                "The next envelope has to wait for the daily quota to refill");
+    }
+
+    @Test
+    public void testTokenBucketReservesSeveralTokens() {
+        TokenBucket bucket = new TokenBucket(10, 3);
+        long now = System.nanoTime();
+        assertEquals(0, bucket.reserve(now, 3, 0));
+        assertEquals(SECOND / 10, bucket.reserve(now, 1, SECOND));
+
+        TokenBucket idle = new TokenBucket(10, 3);
+        assertEquals(0, idle.reserve(now, 5, 0), "More than the capacity goes once the bucket is full");
+        assertEquals(3 * SECOND / 10, idle.waitNanos(now), "and the overdraft is paid by whoever comes next");
+        idle.refund(5);
+        assertEquals(3.0, idle.available(now), 1e-9);
+    }
+
+    /** Runs before the router test spends the daily bucket */
+    @Test
+    @Order(2)
+    public void testRefundGivesBackAnUnusedReservation() {
+        assertEquals(0, rateLimiter.reserve("daily", 2, 0));
+        assertEquals(0.0, rateLimiter.headroom("daily"), 0.01);
+        rateLimiter.refund("daily", 2);
+        assertEquals(1.0, rateLimiter.headroom("daily"), 0.01, "Nothing was sent, so the quota should be whole again");
+
+        assertEquals(0, rateLimiter.reserve("paced", 0));
+        rateLimiter.refund("paced", 1);
+        assertEquals(1.0, rateLimiter.headroom("paced"), 0.01);
+    }
+
+    @Test
+    public void testRouterSkipsServersWithoutBudget() {
+        while (rateLimiter.reserve("merged", 0) == 0) {
+            // Spend whatever the merged-envelope test left, so only "open" has budget
+        }
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, rateLimiter.reserve("paced", 0));
+        }
+        // An hour's share of 48/day is 2
+        assertEquals(0, rateLimiter.reserve("daily", 0));
+        assertEquals(0, rateLimiter.reserve("daily", 0));
+        assertEquals(-1, rateLimiter.reserve("daily", SECOND), "The daily quota does not refill within a second");
+        assertEquals(0.0, rateLimiter.headroom("daily"), 0.01);
+        assertEquals(1.0, rateLimiter.headroom("open"));
+
+        Map<String, Integer> picks = new HashMap<>();
+        for (int i = 0; i < 200; i++) {
+            picks.merge(serverRouter.selectServer(), 1, Integer::sum);
+        }
+        assertEquals(Map.of("open", 200), picks, "Only the server with budget should get traffic");
+    }
+
+    private EmailRequest request(String to) {
+        EmailRequest request = new EmailRequest();
+        request.setFrom("campaign@example.com");
+        request.setTo(List.of(to));
+        request.setSubject("Quota");
+        request.setBody("Body");
+        return request;
+    }
+}
@@ -0,0 +1,77 @@
+package com.ishan.emailclientapp;
+
+import com.ishan.emailclientapp.service.MessageContentException;
+import com.ishan.emailclientapp.service.SmtpReplies;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.InternetAddress;
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSendFailedException;
+import org.junit.jupiter.api.Test;
+
+import java.net.SocketException;
+import java.nio.file.NoSuchFileException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SmtpRepliesTest {
+
+    @Test
+    public void testReplyCodeFromSendFailure() {
+        SMTPSendFailedException error = new SMTPSendFailedException("DATA", 451, "451 Try again later",
+                null, null, null, null);
+        assertEquals(451, SmtpReplies.replyCode(error));
+        assertEquals("4xx", SmtpReplies.replyClass(error));
+    }
+
+    @Test
+    public void testReplyCodeFromNestedAddressFailure() throws Exception {
+        SMTPAddressFailedException rejected = new SMTPAddressFailedException(
+                new InternetAddress("nobody@example.com"), "RCPT TO", 550, "550 No such user");
+        SendFailedException error = new SendFailedException("Invalid Addresses", rejected);
+        assertEquals(550, SmtpReplies.replyCode(error));
+        assertEquals("5xx", SmtpReplies.replyClass(error));
+    }
+
+    @Test
+    public void testConnectionFailure() {
+        MessagingException error = new MessagingException("Connection reset", new SocketException("reset"));
+        assertEquals(SmtpReplies.UNKNOWN, SmtpReplies.replyCode(error));
+        assertTrue(SmtpReplies.isConnectionFailure(error));
+        assertEquals("connection", SmtpReplies.replyClass(error));
+        assertEquals("other", SmtpReplies.replyClass(new IllegalStateException("boom")));
+    }
+
+    @Test
+    public void testConnectionLost() {
+        SMTPSendFailedException eof = new SMTPSendFailedException("MAIL FROM", -1, "[EOF]", null, null, null, null);
+        SMTPSendFailedException closing = new SMTPSendFailedException("DATA", 421, "421 Closing", null, null, null, null);
+        SMTPSendFailedException busy = new SMTPSendFailedException("RCPT TO", 450, "450 Mailbox busy", null, null, null, null);
+        assertTrue(SmtpReplies.isConnectionLost(eof, () -> false), "No reply and a closed transport means the connection is gone");
+        assertFalse(SmtpReplies.isConnectionLost(eof, () -> true), "A failure that left the connection working is not a lost one");
+        assertTrue(SmtpReplies.isConnectionLost(closing, () -> true));
+        assertFalse(SmtpReplies.isConnectionLost(busy, () -> false), "Other 4xx replies come from a working connection");
+    }
+
+    @Test
+    public void testContentFailureIsNotTheConnection() {
+        MessagingException unreadable = new MessagingException("IOException while sending message",
+                new MessageContentException("Stored attachment unavailable: 9f86d0.b64", new NoSuchFileException("9f86d0.b64")));
+        assertTrue(SmtpReplies.isContentFailure(unreadable));
+        assertFalse(SmtpReplies.isConnectionFailure(unreadable), "A missing attachment says nothing about the server");
+        assertFalse(SmtpReplies.isConnectionLost(unreadable, () -> false), "Retrying on a fresh connection would fail the same way");
+        assertFalse(SmtpReplies.isTransient(unreadable));
+        assertEquals("other", SmtpReplies.replyClass(unreadable));
+    }
+
+    @Test
+    public void testTransientFailures() throws Exception {
+        SMTPSendFailedException greylisted = new SMTPSendFailedException("RCPT TO", 451, "451 Try again", null, null, null, null);
+        SMTPAddressFailedException unknownUser = new SMTPAddressFailedException(
+                new InternetAddress("nobody@example.com"), "RCPT TO", 550, "550 No such user");
+        assertTrue(SmtpReplies.isTransient(greylisted));
+        assertTrue(SmtpReplies.isTransient(new MessagingException("Connection reset", new SocketException("reset"))));
+        assertFalse(SmtpReplies.isTransient(new SendFailedException("Invalid Addresses", unknownUser)),
+                "5xx replies are permanent");
+    }
+}
@@ -0,0 +1,47 @@
+package com.ishan.emailclientapp;
+
+import com.ishan.emailclientapp.service.SmtpServerRouter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@TestPropertySource(properties = {
+    "spring.mail.servers[0].name=heavy",
+    "spring.mail.servers[0].host=localhost",
+    "spring.mail.servers[0].port=2525",
+    "spring.mail.servers[0].weight=3",
+    "spring.mail.servers[1].name=light",
+    "spring.mail.servers[1].host=localhost",
+    "spring.mail.servers[1].port=2526",
+    "spring.mail.servers[1].weight=1",
+    "spring.mail.servers[2].name=disabled",
+    "spring.mail.servers[2].host=localhost",
+    "spring.mail.servers[2].port=2527",
+    "spring.mail.servers[2].enabled=false"
+})
+public class SmtpServerRouterTest {
+
+    @Autowired
+    private SmtpServerRouter serverRouter;
+
+    @Test
+    public void testSelectionFollowsWeights() {
+        Map<String, Integer> picks = new HashMap<>();
+        for (int i = 0; i < 10000; i++) {
+            picks.merge(serverRouter.selectServer(), 1, Integer::sum);
+        }
+
+        assertFalse(picks.containsKey("disabled"), "Disabled servers should never be selected");
+        int heavy = picks.getOrDefault("heavy", 0);
+        int light = picks.getOrDefault("light", 0);
+        assertTrue(light > 0, "Every enabled server should receive traffic");
+        assertTrue(heavy > light * 2, "Weight 3 server should get roughly three times the traffic of weight 1");
+    }
+}
@@ -0,0 +1,861 @@
+package com.ishan.emailclientapp.smtp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-threaded NIO SMTP server for load and fault testing.
+ * Speaks EHLO/HELO, STARTTLS (self-signed certificate), implicit TLS, AUTH PLAIN/LOGIN,
+ * PIPELINING, CHUNKING (BDAT), MAIL/RCPT/DATA, RSET, NOOP and QUIT.
+ * Replies can be delayed per command and replaced by injected failures or connection drops.
+ * Configure it before calling start().
+ */
+public class FakeSmtpServer implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FakeSmtpServer.class);
+
+    private static final String HOSTNAME = "fake-smtp";
+    private static final String KEYSTORE = "/fake-smtp.p12";
+    private static final char[] KEYSTORE_PASSWORD = "changeit".toCharArray();
+
+    private final int requestedPort;
+    private final Map<String, Long> latencies = new ConcurrentHashMap<>();
+    private final List<Fault> faults = new CopyOnWriteArrayList<>();
+    private final Queue<ReceivedMessage> messages = new ConcurrentLinkedQueue<>();
+    private final Queue<Runnable> selectorTasks = new ConcurrentLinkedQueue<>();
+    private final AtomicLong receivedCount = new AtomicLong();
+    private final AtomicInteger acceptedConnections = new AtomicInteger();
+    private final AtomicInteger openConnections = new AtomicInteger();
+
+    private SSLContext sslContext;
+    private boolean startTls;
+    private boolean implicitTls;
+    private boolean retainMessages = true;
+    private String username;
+    private String password;
+
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private ScheduledExecutorService scheduler;
+    private Thread selectorThread;
+    private volatile boolean running;
+
+    /**
+     * A reply substitution or connection drop for one command verb.
+     * Verbs are CONNECT (the greeting), EHLO, HELO, STARTTLS, AUTH, MAIL, RCPT, DATA (the reply
+     * after the message body), BDAT, RSET, NOOP and QUIT.
+     */
+    public static final class Fault {
+        private final String verb;
+        private final int code;
+        private final double probability;
+        private AtomicInteger remaining;
+
+        private Fault(String verb, int code, double probability) {
+            this.verb = verb.toUpperCase(Locale.ROOT);
+            this.code = code;
+            this.probability = probability;
+        }
+
+        /**
+         * Answer the verb with the given code; 421 also closes the connection
+         */
+        public static Fault reply(String verb, int code, double probability) {
+            return new Fault(verb, code, probability);
+        }
+
+        /**
+         * Close the connection instead of answering the verb
+         */
+        public static Fault drop(String verb, double probability) {
+            return new Fault(verb, 0, probability);
+        }
+
+        /**
+         * Fire at most count times
+         */
+        public Fault times(int count) {
+            this.remaining = new AtomicInteger(count);
+            return this;
+        }
+
+        boolean fire(String commandVerb) {
+            if (!verb.equals(commandVerb)) {
+                return false;
+            }
+            if (probability < 1.0 && ThreadLocalRandom.current().nextDouble() >= probability) {
+                return false;
+            }
+            return remaining == null || remaining.getAndDecrement() > 0;
+        }
+    }
+
+    public record ReceivedMessage(String from, List<String> recipients, byte[] data) {
+        public String content() {
+            return new String(data, StandardCharsets.UTF_8);
+        }
+    }
+
+    private record Reply(String text, boolean close, boolean startTls) {
+        static Reply of(String text) {
+            return new Reply(text, false, false);
+        }
+    }
+
+    /**
+     * @param port port to listen on, 0 for an ephemeral port
+     */
+    public FakeSmtpServer(int port) {
+        this.requestedPort = port;
+    }
+
+    public FakeSmtpServer commandLatency(String verb, long millis) {
+        latencies.put(verb.toUpperCase(Locale.ROOT), millis);
+        return this;
+    }
+
+    public FakeSmtpServer enableStartTls() {
+        this.startTls = true;
+        return this;
+    }
+
+    /**
+     * TLS from the first byte, like port 465
+     */
+    public FakeSmtpServer enableImplicitTls() {
+        this.implicitTls = true;
+        return this;
+    }
+
+    /**
+     * Only accept these credentials; by default any AUTH succeeds
+     */
+    public FakeSmtpServer credentials(String username, String password) {
+        this.username = username;
+        this.password = password;
+        return this;
+    }
+
+    /**
+     * Keep received messages for inspection; turn off for long load runs
+     */
+    public FakeSmtpServer retainMessages(boolean retain) {
+        this.retainMessages = retain;
+        return this;
+    }
+
+    public FakeSmtpServer inject(Fault fault) {
+        faults.add(fault);
+        return this;
+    }
+
+    public void clearFaults() {
+        faults.clear();
+    }
+
+    public void start() throws IOException {
+        if (startTls || implicitTls) {
+            sslContext = loadSslContext();
+        }
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress("localhost", requestedPort), 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "fake-smtp-latency");
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        selectorThread = new Thread(this::runSelector, "fake-smtp-selector");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+        logger.info("Fake SMTP server listening on port {}", getPort());
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public long getReceivedCount() {
+        return receivedCount.get();
+    }
+
+    public int getAcceptedConnections() {
+        return acceptedConnections.get();
+    }
+
+    public int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    public List<ReceivedMessage> getMessages() {
+        return List.copyOf(messages);
+    }
+
+    public void clearMessages() {
+        messages.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        if (selectorThread != null) {
+            try {
+                selectorThread.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private SSLContext loadSslContext() throws IOException {
+        try (InputStream in = FakeSmtpServer.class.getResourceAsStream(KEYSTORE)) {
+            if (in == null) {
+                throw new IOException("Missing test keystore " + KEYSTORE);
+            }
+            KeyStore keyStore = KeyStore.getInstance("PKCS12");
+            keyStore.load(in, KEYSTORE_PASSWORD);
+            KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            kmf.init(keyStore, KEYSTORE_PASSWORD);
+            SSLContext context = SSLContext.getInstance("TLS");
+            context.init(kmf.getKeyManagers(), null, null);
+            return context;
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Unable to load test keystore", e);
+        }
+    }
+
+    private void runSelector() {
+        try {
+            while (running) {
+                selector.select(1000);
+                Runnable task;
+                while ((task = selectorTasks.poll()) != null) {
+                    task.run();
+                }
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            connection.onReadable();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.flush();
+                        }
+                    } catch (Exception e) {
+                        logger.debug("Fake SMTP connection failed", e);
+                        connection.close();
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+        } catch (IOException e) {
+            logger.error("Fake SMTP selector failed", e);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection connection) {
+                    connection.close();
+                }
+            }
+            try {
+                serverChannel.close();
+                selector.close();
+            } catch (IOException e) {
+                logger.debug("Error closing fake SMTP server", e);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            acceptedConnections.incrementAndGet();
+            openConnections.incrementAndGet();
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            if (implicitTls) {
+                connection.installTls();
+            }
+            connection.respond("CONNECT", Reply.of("220 " + HOSTNAME + " ESMTP ready"));
+            connection.flush();
+        }
+    }
+
+    /**
+     * Run on the selector thread after a delay
+     */
+    private void schedule(long delayMillis, Runnable task) {
+        scheduler.schedule(() -> {
+            selectorTasks.add(task);
+            selector.wakeup();
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private Fault firedFault(String verb) {
+        for (Fault fault : faults) {
+            if (fault.fire(verb)) {
+                return fault;
+            }
+        }
+        return null;
+    }
+
+    private final class Connection {
+        private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+        private final SocketChannel channel;
+        private SelectionKey key;
+
+        // Plaintext SMTP bytes: appIn in write mode, appOut in read mode
+        private ByteBuffer appIn = ByteBuffer.allocate(16 * 1024);
+        private ByteBuffer appOut = ByteBuffer.allocate(4 * 1024).flip();
+
+        // TLS records: netIn in write mode, netOut in read mode
+        private SSLEngine engine;
+        private ByteBuffer netIn;
+        private ByteBuffer netOut;
+        private boolean tlsPending;
+
+        private boolean busy;
+        private boolean closing;
+        private boolean closed;
+
+        private String mailFrom;
+        private final List<String> recipients = new ArrayList<>();
+        private boolean inData;
+        private ByteArrayOutputStream data;
+        private long bdatRemaining;
+        private boolean bdatLast;
+        private String authMechanism;
+        private String authUser;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void installTls() {
+            engine = sslContext.createSSLEngine();
+            engine.setUseClientMode(false);
+            int packetSize = engine.getSession().getPacketBufferSize();
+            netIn = ByteBuffer.allocate(packetSize);
+            netOut = ByteBuffer.allocate(packetSize).flip();
+            appIn = ByteBuffer.allocate(Math.max(appIn.capacity(), engine.getSession().getApplicationBufferSize()));
+            try {
+                engine.beginHandshake();
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to start TLS handshake", e);
+            }
+        }
+
+        void onReadable() throws IOException {
+            if (engine == null) {
+                ensureAppInSpace();
+                if (channel.read(appIn) < 0) {
+                    close();
+                    return;
+                }
+            } else {
+                if (!netIn.hasRemaining()) {
+                    netIn = growWriteMode(netIn, netIn.capacity() * 2);
+                }
+                if (channel.read(netIn) < 0) {
+                    close();
+                    return;
+                }
+                unwrapInbound();
+            }
+            processInput();
+            flush();
+        }
+
+        private void unwrapInbound() throws IOException {
+            netIn.flip();
+            try {
+                while (!closed) {
+                    HandshakeStatus status = engine.getHandshakeStatus();
+                    if (status == HandshakeStatus.NEED_TASK) {
+                        runDelegatedTasks();
+                        continue;
+                    }
+                    if (status == HandshakeStatus.NEED_WRAP) {
+                        wrap(EMPTY);
+                        continue;
+                    }
+                    SSLEngineResult result = engine.unwrap(netIn, appIn);
+                    switch (result.getStatus()) {
+                        case BUFFER_OVERFLOW -> appIn = growWriteMode(appIn, appIn.capacity() + engine.getSession().getApplicationBufferSize());
+                        case BUFFER_UNDERFLOW -> {
+                            return;
+                        }
+                        case CLOSED -> {
+                            closing = true;
+                            return;
+                        }
+                        case OK -> {
+                            HandshakeStatus after = engine.getHandshakeStatus();
+                            if (result.bytesConsumed() == 0 && result.bytesProduced() == 0
+                                    && after != HandshakeStatus.NEED_TASK && after != HandshakeStatus.NEED_WRAP) {
+                                return;
+                            }
+                        }
+                    }
+                }
+            } finally {
+                netIn.compact();
+            }
+        }
+
+        /**
+         * @return plaintext bytes consumed from source
+         */
+        private int wrap(ByteBuffer source) throws IOException {
+            netOut.compact();
+            try {
+                while (true) {
+                    SSLEngineResult result = engine.wrap(source, netOut);
+                    if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+                        netOut = growWriteMode(netOut, netOut.capacity() + engine.getSession().getPacketBufferSize());
+                        continue;
+                    }
+                    if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                        closing = true;
+                    }
+                    if (engine.getHandshakeStatus() == HandshakeStatus.NEED_TASK) {
+                        runDelegatedTasks();
+                    }
+                    return result.bytesConsumed();
+                }
+            } finally {
+                netOut.flip();
+            }
+        }
+
+        private void runDelegatedTasks() {
+            Runnable task;
+            while ((task = engine.getDelegatedTask()) != null) {
+                task.run();
+            }
+        }
+
+        /**
+         * Write pending replies; with TLS, wrap them once the handshake is done
+         */
+        void flush() throws IOException {
+            if (closed) {
+                return;
+            }
+            if (engine == null) {
+                channel.write(appOut);
+                if (!appOut.hasRemaining() && tlsPending) {
+                    tlsPending = false;
+                    installTls();
+                }
+            } else {
+                HandshakeStatus status = engine.getHandshakeStatus();
+                while (status == HandshakeStatus.NEED_WRAP || status == HandshakeStatus.NEED_TASK) {
+                    if (status == HandshakeStatus.NEED_TASK) {
+                        runDelegatedTasks();
+                    } else {
+                        wrap(EMPTY);
+                    }
+                    status = engine.getHandshakeStatus();
+                }
+                if (status == HandshakeStatus.NOT_HANDSHAKING) {
+                    while (appOut.hasRemaining() && !closed && wrap(appOut) > 0) {
+                        // keep wrapping until every queued reply is a TLS record
+                    }
+                }
+                channel.write(netOut);
+            }
+
+            boolean pending = appOut.hasRemaining() || (netOut != null && netOut.hasRemaining());
+            if (closing && !pending) {
+                close();
+                return;
+            }
+            if (key.isValid()) {
+                key.interestOps(pending ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+            }
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            openConnections.decrementAndGet();
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.debug("Error closing fake SMTP connection", e);
+            }
+        }
+
+        /**
+         * Consume buffered input until it runs out or a delayed reply is outstanding
+         */
+        void processInput() {
+            appIn.flip();
+            try {
+                while (!busy && !tlsPending && !closing && !closed) {
+                    if (bdatRemaining > 0) {
+                        if (!appIn.hasRemaining()) {
+                            return;
+                        }
+                        int chunk = (int) Math.min(bdatRemaining, appIn.remaining());
+                        data.write(appIn.array(), appIn.arrayOffset() + appIn.position(), chunk);
+                        appIn.position(appIn.position() + chunk);
+                        bdatRemaining -= chunk;
+                        if (bdatRemaining == 0) {
+                            finishChunk();
+                        }
+                        continue;
+                    }
+                    String line = readLine();
+                    if (line == null) {
+                        return;
+                    }
+                    if (inData) {
+                        dataLine(line);
+                    } else {
+                        command(line);
+                    }
+                }
+            } finally {
+                appIn.compact();
+            }
+        }
+
+        private String readLine() {
+            int start = appIn.position();
+            for (int i = start; i < appIn.limit() - 1; i++) {
+                if (appIn.get(i) == '\r' && appIn.get(i + 1) == '\n') {
+                    String line = new String(appIn.array(), appIn.arrayOffset() + start, i - start, StandardCharsets.UTF_8);
+                    appIn.position(i + 2);
+                    return line;
+                }
+            }
+            return null;
+        }
+
+        private void dataLine(String line) {
+            if (line.equals(".")) {
+                inData = false;
+                Fault fault = firedFault("DATA");
+                if (fault != null) {
+                    applyFault("DATA", fault);
+                } else {
+                    deliver();
+                    respond("DATA", Reply.of("250 2.0.0 Ok: queued"));
+                }
+                resetTransaction();
+                return;
+            }
+            // Undo dot-stuffing
+            String content = line.startsWith(".") ? line.substring(1) : line;
+            byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+            data.write(bytes, 0, bytes.length);
+            data.write('\r');
+            data.write('\n');
+        }
+
+        private void finishChunk() {
+            Fault fault = firedFault("BDAT");
+            if (fault != null) {
+                applyFault("BDAT", fault);
+                resetTransaction();
+                return;
+            }
+            if (bdatLast) {
+                deliver();
+                resetTransaction();
+                respond("BDAT", Reply.of("250 2.0.0 Ok: queued"));
+            } else {
+                respond("BDAT", Reply.of("250 2.0.0 Ok: chunk received"));
+            }
+        }
+
+        private void deliver() {
+            receivedCount.incrementAndGet();
+            if (retainMessages) {
+                messages.add(new ReceivedMessage(mailFrom, List.copyOf(recipients), data.toByteArray()));
+            }
+        }
+
+        private void resetTransaction() {
+            mailFrom = null;
+            recipients.clear();
+            data = null;
+            bdatRemaining = 0;
+            bdatLast = false;
+        }
+
+        private void command(String rawLine) {
+            String line = rawLine.stripTrailing();
+            if (authMechanism != null) {
+                authContinuation(line);
+                return;
+            }
+            int space = line.indexOf(' ');
+            String verb = (space < 0 ? line : line.substring(0, space)).toUpperCase(Locale.ROOT);
+            String argument = space < 0 ? "" : line.substring(space + 1).trim();
+
+            Fault fault = firedFault(verb);
+            if (fault != null) {
+                applyFault(verb, fault);
+                return;
+            }
+
+            switch (verb) {
+                case "EHLO" -> {
+                    resetTransaction();
+                    StringBuilder reply = new StringBuilder("250-" + HOSTNAME + "\r\n")
+                            .append("250-PIPELINING\r\n")
+                            .append("250-8BITMIME\r\n")
+                            .append("250-SIZE 52428800\r\n")
+                            .append("250-CHUNKING\r\n");
+                    if (startTls && engine == null) {
+                        reply.append("250-STARTTLS\r\n");
+                    }
+                    reply.append("250 AUTH PLAIN LOGIN");
+                    respond(verb, Reply.of(reply.toString()));
+                }
+                case "HELO" -> respond(verb, Reply.of("250 " + HOSTNAME));
+                case "STARTTLS" -> {
+                    if (!startTls || engine != null) {
+                        respond(verb, Reply.of("454 4.7.0 TLS not available"));
+                    } else {
+                        respond(verb, new Reply("220 2.0.0 Ready to start TLS", false, true));
+                    }
+                }
+                case "AUTH" -> auth(argument);
+                case "MAIL" -> {
+                    mailFrom = address(argument);
+                    recipients.clear();
+                    respond(verb, Reply.of("250 2.1.0 Ok"));
+                }
+                case "RCPT" -> {
+                    if (mailFrom == null) {
+                        respond(verb, Reply.of("503 5.5.1 Need MAIL first"));
+                    } else {
+                        recipients.add(address(argument));
+                        respond(verb, Reply.of("250 2.1.5 Ok"));
+                    }
+                }
+                case "DATA" -> {
+                    if (recipients.isEmpty()) {
+                        respond("DATA-START", Reply.of("503 5.5.1 Need RCPT first"));
+                    } else {
+                        inData = true;
+                        data = new ByteArrayOutputStream();
+                        respond("DATA-START", Reply.of("354 End data with <CR><LF>.<CR><LF>"));
+                    }
+                }
+                case "BDAT" -> {
+                    String[] parts = argument.split("\\s+");
+                    if (recipients.isEmpty() || parts.length == 0 || parts[0].isEmpty()) {
+                        respond(verb, Reply.of("503 5.5.1 Need RCPT first"));
+                    } else {
+                        if (data == null) {
+                            data = new ByteArrayOutputStream();
+                        }
+                        bdatRemaining = Long.parseLong(parts[0]);
+                        bdatLast = parts.length > 1 && parts[1].equalsIgnoreCase("LAST");
+                        if (bdatRemaining == 0) {
+                            finishChunk();
+                        }
+                    }
+                }
+                case "RSET" -> {
+                    resetTransaction();
+                    respond(verb, Reply.of("250 2.0.0 Ok"));
+                }
+                case "NOOP" -> respond(verb, Reply.of("250 2.0.0 Ok"));
+                case "VRFY" -> respond(verb, Reply.of("252 2.0.0 Cannot VRFY user"));
+                case "QUIT" -> respond(verb, new Reply("221 2.0.0 Bye", true, false));
+                default -> respond(verb, Reply.of("500 5.5.2 Command not recognized"));
+            }
+        }
+
+        private void auth(String argument) {
+            String[] parts = argument.split("\\s+");
+            String mechanism = parts[0].toUpperCase(Locale.ROOT);
+            if (mechanism.equals("PLAIN")) {
+                if (parts.length > 1) {
+                    checkPlain(parts[1]);
+                } else {
+                    authMechanism = "PLAIN";
+                    respond("AUTH", Reply.of("334 "));
+                }
+            } else if (mechanism.equals("LOGIN")) {
+                authMechanism = "LOGIN";
+                respond("AUTH", Reply.of("334 VXNlcm5hbWU6"));
+            } else {
+                respond("AUTH", Reply.of("504 5.5.4 Unrecognized authentication type"));
+            }
+        }
+
+        private void authContinuation(String line) {
+            String mechanism = authMechanism;
+            if (mechanism.equals("PLAIN")) {
+                authMechanism = null;
+                checkPlain(line);
+            } else if (authUser == null) {
+                authUser = decode(line);
+                respond("AUTH", Reply.of("334 UGFzc3dvcmQ6"));
+            } else {
+                authMechanism = null;
+                String user = authUser;
+                authUser = null;
+                authResult(user, decode(line));
+            }
+        }
+
+        private void checkPlain(String encoded) {
+            String[] fields = decode(encoded).split("\u0000", -1);
+            authResult(fields.length > 1 ? fields[1] : "", fields.length > 2 ? fields[2] : "");
+        }
+
+        private void authResult(String user, String pass) {
+            if (username == null || (username.equals(user) && password.equals(pass))) {
+                respond("AUTH", Reply.of("235 2.7.0 Authentication successful"));
+            } else {
+                respond("AUTH", Reply.of("535 5.7.8 Authentication credentials invalid"));
+            }
+        }
+
+        private String decode(String base64) {
+            try {
+                return new String(Base64.getDecoder().decode(base64.trim()), StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                return "";
+            }
+        }
+
+        private String address(String argument) {
+            int open = argument.indexOf('<');
+            int close = argument.indexOf('>', open + 1);
+            return open >= 0 && close > open ? argument.substring(open + 1, close) : argument;
+        }
+
+        private void applyFault(String verb, Fault fault) {
+            if (fault.code == 0) {
+                logger.debug("Injected connection drop on {}", verb);
+                close();
+                return;
+            }
+            String text = fault.code + (fault.code == 421 ? " 4.7.0 " + HOSTNAME + " Service not available, closing channel"
+                    : " Injected failure");
+            respond(verb, new Reply(text, fault.code == 421, false));
+        }
+
+        /**
+         * Queue a reply, after the configured latency for the verb; later input waits behind it
+         */
+        void respond(String verb, Reply reply) {
+            Long latency = latencies.get(verb);
+            if (latency == null || latency <= 0) {
+                write(reply);
+                return;
+            }
+            busy = true;
+            schedule(latency, () -> {
+                if (closed) {
+                    return;
+                }
+                write(reply);
+                busy = false;
+                try {
+                    processInput();
+                    flush();
+                } catch (Exception e) {
+                    logger.debug("Fake SMTP connection failed", e);
+                    close();
+                }
+            });
+        }
+
+        private void write(Reply reply) {
+            byte[] bytes = (reply.text() + "\r\n").getBytes(StandardCharsets.US_ASCII);
+            appOut.compact();
+            if (appOut.remaining() < bytes.length) {
+                appOut = growWriteMode(appOut, appOut.capacity() + bytes.length * 2);
+            }
+            appOut.put(bytes).flip();
+            if (reply.close()) {
+                closing = true;
+            }
+            if (reply.startTls()) {
+                tlsPending = true;
+            }
+        }
+
+        private void ensureAppInSpace() {
+            if (!appIn.hasRemaining()) {
+                appIn = growWriteMode(appIn, appIn.capacity() * 2);
+            }
+        }
+
+        /**
+         * Copy a write-mode buffer into a larger one, still in write mode
+         */
+        private ByteBuffer growWriteMode(ByteBuffer buffer, int capacity) {
+            ByteBuffer larger = ByteBuffer.allocate(capacity);
+            buffer.flip();
+            larger.put(buffer);
+            return larger;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.ishan.emailclientapp.smtp;
+
+/**
+ * Runs a FakeSmtpServer from the command line for manual load tests.
+ * <pre>
+ * --port=2525 --starttls --implicit-tls --auth=user:secret --no-retain
+ * --latency=DATA:20      delay the reply to a verb (repeatable)
+ * --fault=MAIL:421:0.01  reply with a code at a probability (repeatable)
+ * --drop=RCPT:0.001      close the connection at a probability (repeatable)
+ * </pre>
+ */
+public final class FakeSmtpServerLauncher {
+
+    private FakeSmtpServerLauncher() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = 2525;
+        for (String arg : args) {
+            if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            }
+        }
+        FakeSmtpServer server = new FakeSmtpServer(port).retainMessages(false);
+
+        for (String arg : args) {
+            String[] parts = arg.contains("=") ? arg.substring(arg.indexOf('=') + 1).split(":") : new String[0];
+            if (arg.equals("--starttls")) {
+                server.enableStartTls();
+            } else if (arg.equals("--implicit-tls")) {
+                server.enableImplicitTls();
+            } else if (arg.startsWith("--auth=")) {
+                server.credentials(parts[0], parts[1]);
+            } else if (arg.startsWith("--latency=")) {
+                server.commandLatency(parts[0], Long.parseLong(parts[1]));
+            } else if (arg.startsWith("--fault=")) {
+                server.inject(FakeSmtpServer.Fault.reply(parts[0], Integer.parseInt(parts[1]),
+                        parts.length > 2 ? Double.parseDouble(parts[2]) : 1.0));
+            } else if (arg.startsWith("--drop=")) {
+                server.inject(FakeSmtpServer.Fault.drop(parts[0], parts.length > 1 ? Double.parseDouble(parts[1]) : 1.0));
+            } else if (arg.equals("--retain")) {
+                server.retainMessages(true);
+            } else if (arg.equals("--no-retain")) {
+                server.retainMessages(false);
+            } else if (!arg.startsWith("--port=")) {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+
+        FakeSmtpServer running = server;
+        running.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                running.close();
+            } catch (Exception e) {
+                // shutting down anyway
+            }
+        }));
+
+        long last = 0;
+        while (true) {
+            Thread.sleep(5000);
+            long received = running.getReceivedCount();
+            System.out.printf("received=%d (+%.1f/s) connections=%d open=%d%n", received, (received - last) / 5.0,
+                    running.getAcceptedConnections(), running.getOpenConnections());
+            last = received;
+        }
+    }
+}